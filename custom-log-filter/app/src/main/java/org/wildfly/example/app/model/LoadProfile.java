@@ -0,0 +1,182 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2019 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.example.app.model;
+
+import java.util.Arrays;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.QueryParam;
+
+import org.jboss.logging.Logger;
+
+/**
+ * The query parameters describing the load a load generation job creates.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class LoadProfile {
+
+    private static final int MAX_THREADS = 256;
+    private static final int MAX_DURATION = 3600;
+    private static final int MAX_MESSAGE_SIZE = 1024 * 1024;
+
+    @QueryParam("rate")
+    @DefaultValue("1000")
+    private int rate = 1000;
+
+    @QueryParam("threads")
+    @DefaultValue("4")
+    private int threads = 4;
+
+    @QueryParam("duration")
+    @DefaultValue("10")
+    private int duration = 10;
+
+    @QueryParam("messageSize")
+    @DefaultValue("128")
+    private int messageSize = 128;
+
+    @QueryParam("levels")
+    @DefaultValue("INFO")
+    private String levels = "INFO";
+
+    @QueryParam("exceptionRatio")
+    @DefaultValue("0")
+    private double exceptionRatio;
+
+    /**
+     * The target number of messages logged per second across all threads.
+     *
+     * @return the target rate
+     */
+    public int getRate() {
+        return rate;
+    }
+
+    public void setRate(final int rate) {
+        this.rate = rate;
+    }
+
+    /**
+     * The number of threads logging messages.
+     *
+     * @return the number of threads
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(final int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * The number of seconds the job runs for.
+     *
+     * @return the duration in seconds
+     */
+    public int getDuration() {
+        return duration;
+    }
+
+    public void setDuration(final int duration) {
+        this.duration = duration;
+    }
+
+    /**
+     * The approximate size of each message in characters.
+     *
+     * @return the message size
+     */
+    public int getMessageSize() {
+        return messageSize;
+    }
+
+    public void setMessageSize(final int messageSize) {
+        this.messageSize = messageSize;
+    }
+
+    /**
+     * Returns a comma delimited list of levels with an optional weight, for example {@code INFO=80,WARN=15,ERROR=5}.
+     * A level without a weight has a weight of 1.
+     *
+     * @return the level mix
+     */
+    public String getLevels() {
+        return levels;
+    }
+
+    public void setLevels(final String levels) {
+        this.levels = levels;
+    }
+
+    /**
+     * The ratio, between 0 and 1, of messages logged with an exception.
+     *
+     * @return the exception ratio
+     */
+    public double getExceptionRatio() {
+        return exceptionRatio;
+    }
+
+    public void setExceptionRatio(final double exceptionRatio) {
+        this.exceptionRatio = exceptionRatio;
+    }
+
+    /**
+     * Validates the parameters are within their allowed ranges.
+     *
+     * @throws BadRequestException if a parameter is invalid
+     */
+    public void validate() {
+        check("rate", rate, 1, Integer.MAX_VALUE);
+        check("threads", threads, 1, MAX_THREADS);
+        check("duration", duration, 1, MAX_DURATION);
+        check("messageSize", messageSize, 0, MAX_MESSAGE_SIZE);
+        if (exceptionRatio < 0D || exceptionRatio > 1D) {
+            throw new BadRequestException(String.format("Invalid exceptionRatio value %s, expected a value between 0 and 1.", exceptionRatio));
+        }
+        if (levels == null || levels.trim().isEmpty()) {
+            throw new BadRequestException("At least one level is required.");
+        }
+        for (String level : levels.split(",")) {
+            final int i = level.indexOf('=');
+            final String name = (i < 0 ? level : level.substring(0, i)).trim();
+            if (!LogMessage.isLevel(name)) {
+                throw new BadRequestException(String.format("Invalid level %s, expected one of %s.", name, Arrays.toString(Logger.Level.values())));
+            }
+            if (i >= 0) {
+                try {
+                    if (Integer.parseInt(level.substring(i + 1).trim()) < 1) {
+                        throw new NumberFormatException();
+                    }
+                } catch (NumberFormatException e) {
+                    throw new BadRequestException(String.format("Invalid weight for level %s, expected a positive integer.", level.trim()));
+                }
+            }
+        }
+    }
+
+    private static void check(final String name, final int value, final int min, final int max) {
+        if (value < min || value > max) {
+            throw new BadRequestException(String.format("Invalid %s value %d, expected a value between %d and %d.", name, value, min, max));
+        }
+    }
+}
@@ -19,20 +19,89 @@
 
 package org.wildfly.example.app.model;
 
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.jboss.logging.Logger;
+
 /**
  * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
  */
 public class LogMessage {
+    private static final Map<String, Logger.Level> LEVELS = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    static {
+        for (Logger.Level level : Logger.Level.values()) {
+            LEVELS.put(level.name(), level);
+        }
+    }
+
     private String level;
+    private Logger.Level loggerLevel;
     private String message;
     private boolean addException;
 
+    /**
+     * Creates a new log message.
+     *
+     * @param level        the level name, resolved to a {@linkplain #resolvedLevel() logger level} once
+     * @param message      the message
+     * @param addException {@code true} if an exception should be logged with the message
+     *
+     * @return the new log message
+     */
+    public static LogMessage of(final String level, final String message, final boolean addException) {
+        final LogMessage logMessage = new LogMessage();
+        logMessage.setLevel(level);
+        logMessage.message = message;
+        logMessage.addException = addException;
+        return logMessage;
+    }
+
+    /**
+     * Resolves the level name ignoring case.
+     *
+     * @param level the level name
+     *
+     * @return the level or {@link Logger.Level#INFO} if the name is {@code null} or not a valid level
+     */
+    public static Logger.Level parseLevel(final String level) {
+        if (level == null) {
+            return Logger.Level.INFO;
+        }
+        final Logger.Level result = LEVELS.get(level);
+        return result == null ? Logger.Level.INFO : result;
+    }
+
+    /**
+     * Checks whether the name is a valid level ignoring case.
+     *
+     * @param level the level name
+     *
+     * @return {@code true} if the name is a valid level, otherwise {@code false}
+     */
+    public static boolean isLevel(final String level) {
+        return level != null && LEVELS.containsKey(level);
+    }
+
     public String getLevel() {
         return level;
     }
 
     public void setLevel(final String level) {
         this.level = level;
+        loggerLevel = parseLevel(level);
+    }
+
+    /**
+     * Returns the level to log the message at. This is not a bean property so it is not written when the message is
+     * serialized.
+     *
+     * @return the resolved level, {@link Logger.Level#INFO} if the level is not set or not a valid level
+     */
+    public Logger.Level resolvedLevel() {
+        final Logger.Level loggerLevel = this.loggerLevel;
+        return loggerLevel == null ? Logger.Level.INFO : loggerLevel;
     }
 
     public String getMessage() {
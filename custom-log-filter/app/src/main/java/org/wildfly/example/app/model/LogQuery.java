@@ -0,0 +1,236 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2019 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.example.app.model;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.QueryParam;
+
+/**
+ * The query parameters used to select log records.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class LogQuery {
+
+    @QueryParam("offset")
+    @DefaultValue("0")
+    private int offset;
+
+    @QueryParam("limit")
+    @DefaultValue("-1")
+    private int limit = -1;
+
+    @QueryParam("since")
+    private String since;
+
+    @QueryParam("until")
+    private String until;
+
+    @QueryParam("level")
+    private String level;
+
+    @QueryParam("logger")
+    private String logger;
+
+    @QueryParam("moduleName")
+    private String moduleName;
+
+    @QueryParam("message")
+    private String message;
+
+    @QueryParam("messagePattern")
+    private String messagePattern;
+
+    @QueryParam("includeRotated")
+    @DefaultValue("false")
+    private boolean includeRotated;
+
+    /**
+     * The number of matching records to skip.
+     *
+     * @return the number of records to skip
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    public void setOffset(final int offset) {
+        this.offset = offset;
+    }
+
+    /**
+     * The maximum number of records to return. A negative value indicates there is no limit.
+     *
+     * @return the maximum number of records to return
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(final int limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Returns the inclusive lower bound of the records timestamp.
+     *
+     * @return the lower bound or {@code null} if there is no lower bound
+     *
+     * @throws BadRequestException if the value is not a valid ISO-8601 date time with an offset
+     */
+    public Instant getSince() {
+        return parse("since", since);
+    }
+
+    public void setSince(final String since) {
+        this.since = since;
+    }
+
+    /**
+     * Returns the inclusive upper bound of the records timestamp.
+     *
+     * @return the upper bound or {@code null} if there is no upper bound
+     *
+     * @throws BadRequestException if the value is not a valid ISO-8601 date time with an offset
+     */
+    public Instant getUntil() {
+        return parse("until", until);
+    }
+
+    public void setUntil(final String until) {
+        this.until = until;
+    }
+
+    /**
+     * Returns a comma delimited list of levels a record must have one of.
+     *
+     * @return the levels or {@code null} to allow all levels
+     */
+    public String getLevel() {
+        return level;
+    }
+
+    public void setLevel(final String level) {
+        this.level = level;
+    }
+
+    /**
+     * Returns the logger category a record must be logged from. The category matches the logger with the same name
+     * and all of its child loggers.
+     *
+     * @return the logger category or {@code null} to allow all loggers
+     */
+    public String getLogger() {
+        return logger;
+    }
+
+    public void setLogger(final String logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * Returns the value the {@code moduleName} MDC entry of a record must have.
+     *
+     * @return the module name or {@code null} to allow all module names
+     */
+    public String getModuleName() {
+        return moduleName;
+    }
+
+    public void setModuleName(final String moduleName) {
+        this.moduleName = moduleName;
+    }
+
+    /**
+     * Returns the text the message of a record must contain.
+     *
+     * @return the text or {@code null} to allow all messages
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(final String message) {
+        this.message = message;
+    }
+
+    /**
+     * Returns the pattern the message of a record must contain a match for.
+     *
+     * @return the pattern or {@code null} to allow all messages
+     *
+     * @throws BadRequestException if the value is not a valid regular expression
+     */
+    public Pattern getMessagePattern() {
+        if (messagePattern == null || messagePattern.isEmpty()) {
+            return null;
+        }
+        try {
+            return Pattern.compile(messagePattern);
+        } catch (PatternSyntaxException e) {
+            throw new BadRequestException(String.format("Invalid messagePattern value %s: %s", messagePattern, e.getDescription()), e);
+        }
+    }
+
+    public void setMessagePattern(final String messagePattern) {
+        this.messagePattern = messagePattern;
+    }
+
+    /**
+     * Indicates whether rotated log files should be read as well as the current log file.
+     *
+     * @return {@code true} to include the rotated log files
+     */
+    public boolean isIncludeRotated() {
+        return includeRotated;
+    }
+
+    public void setIncludeRotated(final boolean includeRotated) {
+        this.includeRotated = includeRotated;
+    }
+
+    /**
+     * Validates the query parameters which need to be converted.
+     *
+     * @throws BadRequestException if a parameter is invalid
+     */
+    public void validate() {
+        getSince();
+        getUntil();
+        getMessagePattern();
+    }
+
+    private static Instant parse(final String name, final String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            return OffsetDateTime.parse(value).toInstant();
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException(String.format("Invalid %s value %s, expected an ISO-8601 date time with an offset.", name, value), e);
+        }
+    }
+}
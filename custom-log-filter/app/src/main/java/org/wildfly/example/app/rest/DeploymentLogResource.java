@@ -19,30 +19,42 @@
 
 package org.wildfly.example.app.rest;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.StringReader;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.util.ArrayList;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
 import javax.json.Json;
 import javax.json.JsonArrayBuilder;
 import javax.json.JsonObject;
 import javax.json.JsonObjectBuilder;
-import javax.json.JsonReader;
+import javax.ws.rs.BeanParam;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
 
+import org.HdrHistogram.Histogram;
+import org.wildfly.example.app.model.LoadProfile;
 import org.wildfly.example.app.model.LogMessage;
+import org.wildfly.example.app.model.LogQuery;
+import org.wildfly.example.app.service.DeploymentLog;
+import org.wildfly.example.app.service.LoadJob;
+import org.wildfly.example.app.service.LogJob;
+import org.wildfly.example.app.service.LogQueue;
+import org.wildfly.example.app.service.LogTailer;
 import org.wildfly.example.app.service.ScheduledLogger;
 
 /**
@@ -54,26 +66,97 @@ public class DeploymentLogResource {
     @Inject
     private ScheduledLogger logService;
 
+    @Inject
+    private DeploymentLog deploymentLog;
+
+    @Inject
+    private LogTailer logTailer;
+
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public Response read() throws IOException {
-        final java.nio.file.Path logFile = getLogFile();
-        if (Files.notExists(logFile)) {
+    public Response read(@BeanParam final LogQuery query) {
+        if (!deploymentLog.exists()) {
             return Response.serverError()
                     .entity("Could not find the log file deployment.log")
                     .build();
         }
-        final JsonArrayBuilder builder = Json.createArrayBuilder();
-        readLogFile(logFile).forEach(builder::add);
-        return Response.ok(builder.build()).build();
+        // Validate the query before the response is committed
+        query.validate();
+        final StreamingOutput entity = out -> deploymentLog.write(query, out);
+        return Response.ok(entity).build();
+    }
+
+    @GET
+    @Path("/tail")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response tail(@QueryParam("lines") @DefaultValue("100") final int lines) {
+        if (!deploymentLog.exists()) {
+            return Response.serverError()
+                    .entity("Could not find the log file deployment.log")
+                    .build();
+        }
+        final StreamingOutput entity = out -> deploymentLog.writeTail(lines, out);
+        return Response.ok(entity).build();
+    }
+
+    @GET
+    @Path("/stream")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    public void stream(@Context final SseEventSink sink, @Context final Sse sse) {
+        logTailer.subscribe(sink, sse);
+    }
+
+    @POST
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    public CompletionStage<Response> createLog(@QueryParam("echo") @DefaultValue("true") final boolean echo,
+                                               final LogMessage logMessage) {
+        return logService.submit(logMessage).thenApply(queued -> {
+            if (queued) {
+                // Echoing serializes the message again, allow clients which do not need it to skip it
+                return echo ? Response.ok(logMessage).build() : Response.noContent().build();
+            }
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .entity(Json.createObjectBuilder().add("error", "The log queue is full, the message was dropped").build())
+                    .build();
+        });
     }
 
     @POST
+    @Path("/batch")
     @Produces(MediaType.APPLICATION_JSON)
     @Consumes(MediaType.APPLICATION_JSON)
-    public Response createLog(final LogMessage logMessage) {
-        logService.log(logMessage);
-        return Response.ok(logMessage).build();
+    public CompletionStage<Response> createLogs(final InputStream in) {
+        final LogMessageParser parser = new LogMessageParser(logService::submit).parseArray(in);
+        return parser.result().thenApply(result -> Response.ok(result).build());
+    }
+
+    @POST
+    @Path("/batch")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(LogMessageParser.APPLICATION_NDJSON)
+    public CompletionStage<Response> createLogLines(final InputStream in) throws IOException {
+        final LogMessageParser parser = new LogMessageParser(logService::submit).parseLines(in);
+        return parser.result().thenApply(result -> Response.ok(result).build());
+    }
+
+    @GET
+    @Path("/queue")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response queue() {
+        final LogQueue queue = logService.getQueue();
+        final JsonObjectBuilder builder = Json.createObjectBuilder()
+                .add("async", queue != null);
+        if (queue != null) {
+            builder.add("policy", queue.getPolicy().name())
+                    .add("capacity", queue.getCapacity())
+                    .add("depth", queue.getDepth())
+                    .add("enqueued", queue.getEnqueued())
+                    .add("logged", queue.getLogged())
+                    .add("dropped", queue.getDropped())
+                    .add("failed", queue.getFailed());
+        }
+        return Response.ok(builder.build()).build();
     }
 
     @GET
@@ -89,6 +172,33 @@ public class DeploymentLogResource {
         return Response.ok(builder.build()).build();
     }
 
+    @GET
+    @Path("/active/{id}/stats")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response stats(@PathParam("id") final String id) {
+        final LogJob job = logService.getJob(id);
+        if (job == null) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity(Json.createObjectBuilder().add("error", "logger " + id + " not found").build())
+                    .build();
+        }
+        final JsonObjectBuilder builder = Json.createObjectBuilder()
+                .add("id", id)
+                .add("emitted", job.getEmitted())
+                .add("errors", job.getErrors())
+                .add("logTimeMicros", toMicros(job.getLogTime()))
+                .add("driftMicros", Json.createObjectBuilder()
+                        .add("last", TimeUnit.NANOSECONDS.toMicros(job.getLastDrift()))
+                        .add("max", TimeUnit.NANOSECONDS.toMicros(job.getMaxDrift())));
+        final Throwable lastError = job.getLastError();
+        if (lastError != null) {
+            builder.add("lastError", Json.createObjectBuilder()
+                    .add("timestamp", job.getLastErrorTime().toString())
+                    .add("message", String.valueOf(lastError)));
+        }
+        return Response.ok(builder.build()).build();
+    }
+
     @POST
     @Path("/start")
     @Produces(MediaType.APPLICATION_JSON)
@@ -109,12 +219,56 @@ public class DeploymentLogResource {
         return Response.ok(json).build();
     }
 
+    @POST
+    @Path("/load")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response startLoad(@BeanParam final LoadProfile profile) {
+        profile.validate();
+        final JsonObject json = Json.createObjectBuilder()
+                .add("id", logService.startLoad(profile))
+                .build();
+        return Response.ok(json).build();
+    }
+
+    @GET
+    @Path("/load/{id}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response loadResult(@PathParam("id") final String id) {
+        final LoadJob loadJob = logService.getLoadJob(id);
+        if (loadJob == null) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity(Json.createObjectBuilder().add("error", "load job " + id + " not found").build())
+                    .build();
+        }
+        final JsonObjectBuilder builder = Json.createObjectBuilder()
+                .add("id", id)
+                .add("done", loadJob.isDone())
+                .add("rate", loadJob.getRate())
+                .add("threads", loadJob.getThreads())
+                .add("sent", loadJob.getSent())
+                .add("elapsedMillis", TimeUnit.NANOSECONDS.toMillis(loadJob.getElapsedNanos()))
+                .add("throughput", loadJob.getThroughput());
+        final Histogram latency = loadJob.getLatency();
+        if (latency != null) {
+            builder.add("latencyMicros", toMicros(latency));
+        }
+        return Response.ok(builder.build()).build();
+    }
+
     @POST
     @Path("/stop")
     @Produces(MediaType.APPLICATION_JSON)
-    public Response stop() {
+    public Response stop(@QueryParam("id") final List<String> ids, @QueryParam("prefix") final String prefix) {
+        final Map<String, Boolean> stoppedJobs;
+        if (ids != null && !ids.isEmpty()) {
+            stoppedJobs = logService.stop(ids);
+        } else if (prefix != null && !prefix.isEmpty()) {
+            stoppedJobs = logService.stopByPrefix(prefix);
+        } else {
+            stoppedJobs = logService.stopAll();
+        }
         final JsonArrayBuilder builder = Json.createArrayBuilder();
-        logService.stopAll().forEach((id, cancelled) -> {
+        stoppedJobs.forEach((id, cancelled) -> {
             final JsonObjectBuilder objectBuilder = Json.createObjectBuilder();
             objectBuilder.add("id", id);
             objectBuilder.add("cancelled", cancelled);
@@ -138,21 +292,14 @@ public class DeploymentLogResource {
                 .build();
     }
 
-    private static List<JsonObject> readLogFile(final java.nio.file.Path logFile) throws IOException {
-        final List<JsonObject> lines = new ArrayList<>();
-        try (BufferedReader reader = Files.newBufferedReader(logFile, StandardCharsets.UTF_8)) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                try (JsonReader jsonReader = Json.createReader(new StringReader(line))) {
-                    lines.add(jsonReader.readObject());
-                }
-            }
-        }
-        return lines;
-    }
-
-    private static java.nio.file.Path getLogFile() {
-        final String logDir = System.getProperty("jboss.server.log.dir");
-        return Paths.get(logDir, "deployment.log");
+    private static JsonObjectBuilder toMicros(final Histogram histogram) {
+        return Json.createObjectBuilder()
+                .add("count", histogram.getTotalCount())
+                .add("mean", histogram.getMean() / 1_000D)
+                .add("p50", TimeUnit.NANOSECONDS.toMicros(histogram.getValueAtPercentile(50D)))
+                .add("p90", TimeUnit.NANOSECONDS.toMicros(histogram.getValueAtPercentile(90D)))
+                .add("p99", TimeUnit.NANOSECONDS.toMicros(histogram.getValueAtPercentile(99D)))
+                .add("p999", TimeUnit.NANOSECONDS.toMicros(histogram.getValueAtPercentile(99.9D)))
+                .add("max", TimeUnit.NANOSECONDS.toMicros(histogram.getMaxValue()));
     }
 }
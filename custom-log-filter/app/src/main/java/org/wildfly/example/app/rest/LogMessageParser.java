@@ -0,0 +1,265 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2019 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.example.app.rest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.stream.JsonParser;
+import javax.json.stream.JsonParserFactory;
+import javax.json.stream.JsonParsingException;
+import javax.ws.rs.BadRequestException;
+
+import org.wildfly.example.app.model.LogMessage;
+
+/**
+ * Parses a batch of {@link LogMessage log messages} from a request body as a stream. Each message is passed to the
+ * consumer as soon as it has been parsed so the batch is never held in memory.
+ * <p>
+ * The consumer does not wait on the parsing thread. Once a message has not been accepted immediately, for example
+ * while waiting for space in a full queue, the following messages are chained after it so the order of the batch is
+ * kept. Only those messages are held until they have been accepted.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+class LogMessageParser {
+
+    /**
+     * The media type for newline delimited JSON.
+     */
+    static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    /**
+     * The parser factory is shared so the parser buffers are pooled rather than allocated for each request.
+     */
+    static final JsonParserFactory PARSER_FACTORY = Json.createParserFactory(Collections.emptyMap());
+
+    private final Function<LogMessage, CompletionStage<Boolean>> consumer;
+    private final long start = System.nanoTime();
+    private CompletableFuture<Void> pending = CompletableFuture.completedFuture(null);
+    private int received;
+    private int rejected;
+    // Only updated by the stages in the pending chain, which run one after the other
+    private int dropped;
+
+    /**
+     * Creates a new parser.
+     *
+     * @param consumer the consumer each parsed message is passed to, the stage completes with {@code false} if the
+     *                 message was dropped
+     */
+    LogMessageParser(final Function<LogMessage, CompletionStage<Boolean>> consumer) {
+        this.consumer = consumer;
+    }
+
+    /**
+     * Parses a JSON array of messages. Entries of the array which are not objects are rejected. A single JSON object
+     * is accepted as a batch of one message.
+     *
+     * @param in the input stream to parse
+     *
+     * @return this parser
+     *
+     * @throws BadRequestException if the input is not valid JSON, messages parsed before the error have already been
+     *                             passed to the consumer
+     */
+    LogMessageParser parseArray(final InputStream in) {
+        try (JsonParser parser = PARSER_FACTORY.createParser(in)) {
+            if (!parser.hasNext()) {
+                return this;
+            }
+            final JsonParser.Event first = parser.next();
+            if (first == JsonParser.Event.START_OBJECT) {
+                accept(parser);
+            } else if (first == JsonParser.Event.START_ARRAY) {
+                while (parser.hasNext()) {
+                    final JsonParser.Event event = parser.next();
+                    if (event == JsonParser.Event.END_ARRAY) {
+                        break;
+                    }
+                    if (event == JsonParser.Event.START_OBJECT) {
+                        accept(parser);
+                    } else {
+                        if (event == JsonParser.Event.START_ARRAY) {
+                            skip(parser);
+                        }
+                        received++;
+                        rejected++;
+                    }
+                }
+            } else {
+                throw new BadRequestException("Expected a JSON array of log messages.");
+            }
+        } catch (JsonParsingException e) {
+            throw new BadRequestException(String.format("Invalid JSON after %d messages: %s", received, e.getMessage()), e);
+        }
+        return this;
+    }
+
+    /**
+     * Parses newline delimited JSON where each line is a single message. Blank lines are ignored and lines which are
+     * not a valid JSON object are rejected.
+     *
+     * @param in the input stream to parse
+     *
+     * @return this parser
+     *
+     * @throws IOException if an error occurs reading the input stream
+     */
+    LogMessageParser parseLines(final InputStream in) throws IOException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            try (JsonParser parser = PARSER_FACTORY.createParser(new StringReader(line))) {
+                if (parser.hasNext() && parser.next() == JsonParser.Event.START_OBJECT) {
+                    accept(parser);
+                } else {
+                    received++;
+                    rejected++;
+                }
+            } catch (JsonParsingException e) {
+                received++;
+                rejected++;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Creates the result of the batch once every parsed message has been accepted or dropped by the consumer.
+     *
+     * @return a stage which completes with the {@linkplain #toJson() result} of the batch
+     */
+    CompletionStage<JsonObject> result() {
+        return pending.thenApply(ignore -> toJson());
+    }
+
+    /**
+     * Creates the result of the batch.
+     *
+     * @return a JSON object with the number of received, logged, rejected and dropped messages and the time taken
+     */
+    private JsonObject toJson() {
+        final long elapsed = System.nanoTime() - start;
+        final int logged = received - rejected - dropped;
+        return Json.createObjectBuilder()
+                .add("received", received)
+                .add("logged", logged)
+                .add("rejected", rejected)
+                .add("dropped", dropped)
+                .add("elapsedMillis", elapsed / 1_000_000L)
+                .add("averageMicros", logged == 0 ? 0L : elapsed / 1_000L / logged)
+                .build();
+    }
+
+    private void accept(final JsonParser parser) {
+        received++;
+        final LogMessage message = readMessage(parser);
+        if (pending.isDone()) {
+            pending = submit(message);
+        } else {
+            pending = pending.thenCompose(ignore -> submit(message));
+        }
+    }
+
+    private CompletableFuture<Void> submit(final LogMessage message) {
+        return consumer.apply(message).handle((queued, error) -> {
+            if (error != null || !queued) {
+                dropped++;
+            }
+            return (Void) null;
+        }).toCompletableFuture();
+    }
+
+    /**
+     * Reads a log message from the parser. The parser must be positioned directly after the start of the object and
+     * is left positioned at the end of the object. Unknown properties are ignored.
+     *
+     * @param parser the parser to read the message from
+     *
+     * @return the message
+     */
+    static LogMessage readMessage(final JsonParser parser) {
+        String level = null;
+        String message = null;
+        boolean addException = false;
+        int depth = 1;
+        String key = null;
+        while (depth > 0 && parser.hasNext()) {
+            final JsonParser.Event event = parser.next();
+            switch (event) {
+                case START_OBJECT:
+                case START_ARRAY:
+                    depth++;
+                    break;
+                case END_OBJECT:
+                case END_ARRAY:
+                    depth--;
+                    break;
+                case KEY_NAME:
+                    key = parser.getString();
+                    break;
+                case VALUE_STRING:
+                    if (depth == 1) {
+                        if ("level".equals(key)) {
+                            level = parser.getString();
+                        } else if ("message".equals(key)) {
+                            message = parser.getString();
+                        }
+                    }
+                    break;
+                case VALUE_TRUE:
+                case VALUE_FALSE:
+                    if (depth == 1 && "addException".equals(key)) {
+                        addException = event == JsonParser.Event.VALUE_TRUE;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return LogMessage.of(level, message, addException);
+    }
+
+    private static void skip(final JsonParser parser) {
+        int depth = 1;
+        while (depth > 0 && parser.hasNext()) {
+            final JsonParser.Event event = parser.next();
+            if (event == JsonParser.Event.START_ARRAY || event == JsonParser.Event.START_OBJECT) {
+                depth++;
+            } else if (event == JsonParser.Event.END_ARRAY || event == JsonParser.Event.END_OBJECT) {
+                depth--;
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2019 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.example.app.rest;
+
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import javax.json.stream.JsonParser;
+import javax.json.stream.JsonParsingException;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.Provider;
+
+import org.wildfly.example.app.model.LogMessage;
+
+/**
+ * Reads a {@link LogMessage}, an array of log messages or a list of log messages from a JSON request body with a
+ * {@link JsonParser}. Only the known properties are read and no reflection is used to bind them.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+@Provider
+@Consumes(MediaType.APPLICATION_JSON)
+public class LogMessageReader implements MessageBodyReader<Object> {
+
+    @Override
+    public boolean isReadable(final Class<?> type, final Type genericType, final Annotation[] annotations,
+                              final MediaType mediaType) {
+        return type == LogMessage.class || type == LogMessage[].class || isList(type, genericType);
+    }
+
+    @Override
+    public Object readFrom(final Class<Object> type, final Type genericType, final Annotation[] annotations,
+                           final MediaType mediaType, final MultivaluedMap<String, String> httpHeaders,
+                           final InputStream entityStream) {
+        try (JsonParser parser = LogMessageParser.PARSER_FACTORY.createParser(entityStream)) {
+            final JsonParser.Event first = parser.hasNext() ? parser.next() : null;
+            if (LogMessage.class.equals(type)) {
+                if (first != JsonParser.Event.START_OBJECT) {
+                    throw new BadRequestException("Expected a JSON object for the log message.");
+                }
+                return LogMessageParser.readMessage(parser);
+            }
+            final List<LogMessage> messages = new ArrayList<>();
+            if (first == JsonParser.Event.START_OBJECT) {
+                messages.add(LogMessageParser.readMessage(parser));
+            } else if (first == JsonParser.Event.START_ARRAY) {
+                while (parser.hasNext()) {
+                    final JsonParser.Event event = parser.next();
+                    if (event == JsonParser.Event.END_ARRAY) {
+                        break;
+                    }
+                    if (event != JsonParser.Event.START_OBJECT) {
+                        throw new BadRequestException("Expected a JSON object for each log message.");
+                    }
+                    messages.add(LogMessageParser.readMessage(parser));
+                }
+            } else {
+                throw new BadRequestException("Expected a JSON array of log messages.");
+            }
+            return LogMessage[].class.equals(type) ? messages.toArray(new LogMessage[0]) : messages;
+        } catch (JsonParsingException e) {
+            throw new BadRequestException("Invalid JSON: " + e.getMessage(), e);
+        }
+    }
+
+    private static boolean isList(final Class<?> type, final Type genericType) {
+        if (!type.isAssignableFrom(ArrayList.class) || !Collection.class.isAssignableFrom(type)) {
+            return false;
+        }
+        if (genericType instanceof ParameterizedType) {
+            final Type[] arguments = ((ParameterizedType) genericType).getActualTypeArguments();
+            return arguments.length == 1 && arguments[0] == LogMessage.class;
+        }
+        return false;
+    }
+}
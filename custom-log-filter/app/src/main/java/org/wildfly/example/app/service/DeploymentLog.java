@@ -0,0 +1,232 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2019 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.example.app.service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.inject.Singleton;
+
+import org.wildfly.example.app.model.LogQuery;
+
+/**
+ * A singleton resource for reading the {@code deployment.log} file written by the JSON formatter.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+@Singleton
+public class DeploymentLog {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int RECENT_RECORDS = 8192;
+
+    @Resource
+    private ManagedExecutorService executor;
+
+    private final LogIndex index = new LogIndex(getIndexFile());
+    private final RecentRecords recentRecords = new RecentRecords(RECENT_RECORDS);
+
+    /**
+     * Checks whether the log file exists.
+     *
+     * @return {@code true} if the log file exists, otherwise {@code false}
+     */
+    public boolean exists() {
+        return Files.exists(getLogFile());
+    }
+
+    /**
+     * Writes the log records matching the query to the output stream as a JSON array.
+     * <p>
+     * If the records are within the {@linkplain RecentRecords recent records} they are written from memory. Otherwise
+     * the raw bytes of each record are copied from the {@linkplain MappedLogReader mapped} log file, so records are
+     * not parsed and memory use does not depend on the size of the log file. The {@linkplain LogIndex index} is used
+     * to seek close to the first record for the offset or the since timestamp.
+     * </p>
+     * <p>
+     * If the query {@linkplain LogQuery#isIncludeRotated() includes rotated files} the records of the rotated files
+     * are read with a {@link RotatedLogReader} before the records of the current log file.
+     * </p>
+     *
+     * @param query the query used to select the records
+     * @param out   the output stream to write the JSON array to
+     *
+     * @throws IOException if an error occurs reading the log file or writing to the stream
+     */
+    public void write(final LogQuery query, final OutputStream out) throws IOException {
+        final Instant since = query.getSince();
+        final Instant until = query.getUntil();
+        final RecordFilter filter = RecordFilter.of(query);
+        final int offset = query.getOffset();
+        final int limit = query.getLimit();
+        final Path logFile = getLogFile();
+        final List<Path> rotated = query.isIncludeRotated() ? RotatedLogReader.findRotated(logFile) : Collections.emptyList();
+        try (OutputStream bufferedOut = new BufferedOutputStream(out, BUFFER_SIZE)) {
+            bufferedOut.write('[');
+            if (!rotated.isEmpty()) {
+                new RotatedLogReader(executor, since, until, filter)
+                        .write(rotated, logFile, index, new RecordWriter(bufferedOut, null, null, null, offset, limit));
+            } else if (!writeRecent(since, until, filter, offset, limit, bufferedOut)) {
+                try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+                    index.update(logFile, channel);
+                    int skip = offset;
+                    final LogIndex.Position position;
+                    if (since != null) {
+                        position = index.seek(since);
+                    } else if (filter.isEmpty()) {
+                        // Without a filter each record is a matching record, so the offset is a line number
+                        position = index.seek(offset);
+                        skip -= position.getLine();
+                    } else {
+                        position = LogIndex.Position.START;
+                    }
+                    MappedLogReader.read(channel, position.getOffset(), new RecordWriter(bufferedOut, since, until, filter, skip, limit));
+                }
+            }
+            bufferedOut.write(']');
+        }
+    }
+
+    /**
+     * Writes the last log records to the output stream as a JSON array. If the records are within the
+     * {@linkplain RecentRecords recent records} they are written from memory. Otherwise the log file is read
+     * backwards from the end to find the first record, so only the returned records are read.
+     *
+     * @param lines the number of records from the end of the log file to write
+     * @param out   the output stream to write the JSON array to
+     *
+     * @throws IOException if an error occurs reading the log file or writing to the stream
+     */
+    public void writeTail(final int lines, final OutputStream out) throws IOException {
+        try (OutputStream bufferedOut = new BufferedOutputStream(out, BUFFER_SIZE)) {
+            bufferedOut.write('[');
+            final RecordWriter writer = new RecordWriter(bufferedOut, null, null, null, 0, -1);
+            final long next = recentRecords.next();
+            final long oldest = recentRecords.oldest();
+            long start = next - lines;
+            if (start < oldest && oldest == 0L) {
+                // All records of the file are in memory
+                start = 0L;
+            }
+            if (next == 0L || start < oldest) {
+                try (FileChannel channel = FileChannel.open(getLogFile(), StandardOpenOption.READ)) {
+                    MappedLogReader.read(channel, LogFiles.tailPosition(channel, lines), writer);
+                }
+            } else {
+                readRecent(start, writer);
+            }
+            bufferedOut.write(']');
+        }
+    }
+
+    /**
+     * Returns the path to the log file.
+     *
+     * @return the log file path
+     */
+    public Path getLogFile() {
+        final String logDir = System.getProperty("jboss.server.log.dir");
+        return Paths.get(logDir, "deployment.log");
+    }
+
+    private static Path getIndexFile() {
+        final String dataDir = System.getProperty("jboss.server.data.dir");
+        return dataDir == null ? null : Paths.get(dataDir, "deployment-log.idx");
+    }
+
+    /**
+     * Returns the index of the log file.
+     *
+     * @return the index
+     */
+    LogIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the most recent records of the log file, which are filled by the {@link LogTailer}.
+     *
+     * @return the recent records
+     */
+    RecentRecords getRecentRecords() {
+        return recentRecords;
+    }
+
+    private boolean writeRecent(final Instant since, final Instant until, final RecordFilter filter, final int offset,
+                                final int limit, final OutputStream out) throws IOException {
+        final long start;
+        final int skip;
+        if (since != null) {
+            // Records are in order, if the oldest record is before the since time no record in the file can be missed
+            final long oldestTimestamp = recentRecords.oldestTimestamp();
+            if (oldestTimestamp == LogFiles.NO_TIMESTAMP || oldestTimestamp >= since.toEpochMilli()) {
+                return false;
+            }
+            start = recentRecords.oldest();
+            skip = offset;
+        } else if (filter.isEmpty()) {
+            if (offset < recentRecords.oldest() || offset >= recentRecords.next()) {
+                return false;
+            }
+            start = offset;
+            skip = 0;
+        } else {
+            return false;
+        }
+        readRecent(start, new RecordWriter(out, since, until, filter, skip, limit));
+        return true;
+    }
+
+    /**
+     * Passes the records starting at the sequence to the handler. The records are read from the recent records and if
+     * the records are overwritten while being read, the remaining records are read from the log file. As the sequence
+     * of a recent record is its line number, the index is used to seek to the first remaining record.
+     */
+    private void readRecent(final long sequence, final MappedLogReader.LineHandler handler) throws IOException {
+        final long unread = recentRecords.read(sequence, handler);
+        if (unread < 0L) {
+            return;
+        }
+        final Path logFile = getLogFile();
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            index.update(logFile, channel);
+            final LogIndex.Position position = index.seek(unread);
+            final long[] skip = {unread - position.getLine()};
+            MappedLogReader.read(channel, position.getOffset(), line -> {
+                // Skip the records between the indexed position and the first unread record
+                if (skip[0] > 0L) {
+                    skip[0]--;
+                    return true;
+                }
+                return handler.handle(line);
+            });
+        }
+    }
+}
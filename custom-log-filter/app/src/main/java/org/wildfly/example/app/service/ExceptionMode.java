@@ -0,0 +1,113 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2019 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.example.app.service;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Defines how the example cause attached to a log message is created.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public enum ExceptionMode {
+    /**
+     * A new exception with a full stack trace is created for each message.
+     */
+    NEW {
+        @Override
+        Throwable createCause(final int depth) {
+            return new RuntimeException(MESSAGE);
+        }
+    },
+    /**
+     * A single preallocated exception is attached to every message.
+     */
+    SHARED {
+        @Override
+        Throwable createCause(final int depth) {
+            return SHARED_CAUSE;
+        }
+    },
+    /**
+     * A new exception without a stack trace is created for each message. The stack is not walked.
+     */
+    STACKLESS {
+        @Override
+        Throwable createCause(final int depth) {
+            return new StacklessException(MESSAGE);
+        }
+    },
+    /**
+     * A new exception is created for each message with the stack trace truncated to a maximum depth. The stack is
+     * still walked, but there is less to format and write for each message.
+     */
+    TRUNCATED {
+        @Override
+        Throwable createCause(final int depth) {
+            final RuntimeException cause = new RuntimeException(MESSAGE);
+            final StackTraceElement[] stackTrace = cause.getStackTrace();
+            if (stackTrace.length > depth) {
+                cause.setStackTrace(Arrays.copyOf(stackTrace, depth));
+            }
+            return cause;
+        }
+    };
+
+    private static final String MESSAGE = "This is an example cause.";
+    private static final RuntimeException SHARED_CAUSE = new RuntimeException(MESSAGE);
+
+    /**
+     * Creates the cause to attach to a message.
+     *
+     * @param depth the maximum stack trace depth for the {@link #TRUNCATED} mode
+     *
+     * @return the cause
+     */
+    abstract Throwable createCause(int depth);
+
+    /**
+     * Parses the mode ignoring case.
+     *
+     * @param value        the value to parse
+     * @param defaultValue the mode to use if the value is {@code null} or not a valid mode
+     *
+     * @return the mode
+     */
+    static ExceptionMode parse(final String value, final ExceptionMode defaultValue) {
+        if (value != null) {
+            final String name = value.trim().toUpperCase(Locale.ROOT);
+            for (ExceptionMode mode : values()) {
+                if (mode.name().equals(name)) {
+                    return mode;
+                }
+            }
+        }
+        return defaultValue;
+    }
+
+    private static class StacklessException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private StacklessException(final String message) {
+            super(message, null, false, false);
+        }
+    }
+}
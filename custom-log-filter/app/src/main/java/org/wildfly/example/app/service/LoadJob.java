@@ -0,0 +1,264 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2019 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.example.app.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.jboss.logging.Logger;
+import org.wildfly.example.app.model.LoadProfile;
+import org.wildfly.example.app.model.LogMessage;
+
+/**
+ * A job which logs messages at a target rate from a number of threads for a fixed duration.
+ * <p>
+ * Each thread logs its share of the rate on a fixed schedule. The latency of each message is measured from the time
+ * the message was scheduled to be logged rather than the time it was actually logged, so a slow handler which causes
+ * the threads to fall behind the schedule is included in the latency rather than hidden by it.
+ * </p>
+ * <p>
+ * Each thread records to its own {@link Recorder}. A stopped job only waits a short time for its threads to end, the
+ * recorders allow the latency to be collected while a thread which has not ended yet may still be recording.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class LoadJob implements Callable<Void> {
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final LogJob job;
+    private final String id;
+    private final Logger logger;
+    private final ThreadFactory threadFactory;
+    private final Supplier<Throwable> causes;
+    private final int rate;
+    private final int threads;
+    private final long durationNanos;
+    private final String padding;
+    private final Logger.Level[] levels;
+    private final int[] weights;
+    private final double exceptionRatio;
+    private final LongAdder sent = new LongAdder();
+    private volatile long startNanos;
+    private volatile long elapsedNanos = -1L;
+    private volatile Histogram latency;
+
+    LoadJob(final LogJob job, final Logger logger, final ThreadFactory threadFactory, final Supplier<Throwable> causes,
+            final LoadProfile profile) {
+        this.job = job;
+        id = job.getId();
+        this.logger = logger;
+        this.threadFactory = threadFactory;
+        this.causes = causes;
+        rate = profile.getRate();
+        threads = profile.getThreads();
+        durationNanos = TimeUnit.SECONDS.toNanos(profile.getDuration());
+        final char[] chars = new char[profile.getMessageSize()];
+        Arrays.fill(chars, 'x');
+        padding = new String(chars);
+        final String[] entries = profile.getLevels().split(",");
+        levels = new Logger.Level[entries.length];
+        weights = new int[entries.length];
+        int total = 0;
+        for (int i = 0; i < entries.length; i++) {
+            final String entry = entries[i];
+            final int separator = entry.indexOf('=');
+            levels[i] = LogMessage.parseLevel(separator < 0 ? entry.trim() : entry.substring(0, separator).trim());
+            total += separator < 0 ? 1 : Integer.parseInt(entry.substring(separator + 1).trim());
+            weights[i] = total;
+        }
+        exceptionRatio = profile.getExceptionRatio();
+    }
+
+    @Override
+    public Void call() throws Exception {
+        final List<Thread> workers = new ArrayList<>(threads);
+        final List<Recorder> recorders = new ArrayList<>(threads);
+        // Each thread logs every interval nanoseconds, the threads are staggered to spread the messages evenly
+        final double interval = TimeUnit.SECONDS.toNanos(1L) * (double) threads / rate;
+        startNanos = System.nanoTime();
+        for (int i = 0; i < threads; i++) {
+            final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+            final long first = startNanos + (long) (interval * i / threads);
+            recorders.add(recorder);
+            workers.add(threadFactory.newThread(() -> run(first, interval, recorder)));
+        }
+        workers.forEach(Thread::start);
+        try {
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException e) {
+            workers.forEach(Thread::interrupt);
+            for (Thread worker : workers) {
+                worker.join(TimeUnit.SECONDS.toMillis(1L));
+            }
+            Thread.currentThread().interrupt();
+        } finally {
+            final Histogram result = new Histogram(SIGNIFICANT_DIGITS);
+            recorders.forEach(recorder -> result.add(recorder.getIntervalHistogram()));
+            elapsedNanos = System.nanoTime() - startNanos;
+            latency = result;
+            logger.infof("Load job %s finished: %d messages in %d ms, %.1f messages/second, p99 latency %d us", id,
+                    sent.sum(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos), getThroughput(),
+                    TimeUnit.NANOSECONDS.toMicros(result.getValueAtPercentile(99D)));
+        }
+        return null;
+    }
+
+    /**
+     * Returns the job id.
+     *
+     * @return the job id
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Indicates whether the job has finished, either because the duration elapsed or it was stopped.
+     *
+     * @return {@code true} if the job has finished
+     */
+    public boolean isDone() {
+        return latency != null;
+    }
+
+    /**
+     * Returns the target number of messages per second.
+     *
+     * @return the target rate
+     */
+    public int getRate() {
+        return rate;
+    }
+
+    /**
+     * Returns the number of threads logging messages.
+     *
+     * @return the number of threads
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Returns the number of messages logged so far.
+     *
+     * @return the number of messages logged
+     */
+    public long getSent() {
+        return sent.sum();
+    }
+
+    /**
+     * Returns the time the job ran for, or has been running for if it has not finished.
+     *
+     * @return the elapsed time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        final long elapsed = elapsedNanos;
+        if (elapsed >= 0L) {
+            return elapsed;
+        }
+        final long start = startNanos;
+        return start == 0L ? 0L : System.nanoTime() - start;
+    }
+
+    /**
+     * Returns the achieved number of messages per second.
+     *
+     * @return the achieved throughput
+     */
+    public double getThroughput() {
+        final long elapsed = getElapsedNanos();
+        return elapsed == 0L ? 0D : sent.sum() * (double) TimeUnit.SECONDS.toNanos(1L) / elapsed;
+    }
+
+    /**
+     * Returns the latency of the logged messages in nanoseconds.
+     *
+     * @return the latency histogram or {@code null} if the job has not finished
+     */
+    public Histogram getLatency() {
+        return latency;
+    }
+
+    private void run(final long first, final double interval, final Recorder recorder) {
+        final long end = startNanos + durationNanos;
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (long count = 0L; ; count++) {
+            final long scheduled = first + (long) (interval * count);
+            if (scheduled - end >= 0L || Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            long now;
+            while ((now = System.nanoTime()) - scheduled < 0L) {
+                LockSupport.parkNanos(scheduled - now);
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+            }
+            final Logger.Level level = nextLevel(random);
+            final String message = message(count);
+            final Throwable cause = exceptionRatio > 0D && random.nextDouble() < exceptionRatio ? causes.get() : null;
+            final long start = System.nanoTime();
+            try {
+                logger.log(level, message, cause);
+                final long logged = System.nanoTime();
+                job.record(scheduled, start, logged);
+                recorder.recordValue(logged - scheduled);
+                sent.increment();
+            } catch (RuntimeException e) {
+                job.recordError(e);
+            }
+        }
+    }
+
+    private Logger.Level nextLevel(final ThreadLocalRandom random) {
+        if (levels.length == 1) {
+            return levels[0];
+        }
+        final int value = random.nextInt(weights[weights.length - 1]);
+        for (int i = 0; i < weights.length; i++) {
+            if (value < weights[i]) {
+                return levels[i];
+            }
+        }
+        return levels[levels.length - 1];
+    }
+
+    private String message(final long count) {
+        final String prefix = "Load message " + count + " from job " + id + " ";
+        final int remaining = padding.length() - prefix.length();
+        return remaining > 0 ? prefix + padding.substring(0, remaining) : prefix;
+    }
+}
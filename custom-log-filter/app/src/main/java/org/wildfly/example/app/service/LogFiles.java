@@ -0,0 +1,308 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2019 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.example.app.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+
+/**
+ * Utilities for working with line based log files.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+class LogFiles {
+
+    private static final int BLOCK_SIZE = 8192;
+    private static final int TIMESTAMP_READ_SIZE = 512;
+    private static final int READ_SIZE = 65536;
+    private static final byte[] TIMESTAMP_KEY = "\"timestamp\":\"".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * The value returned when a timestamp could not be found.
+     */
+    static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    /**
+     * Finds the position of the first byte of the last {@code lines} lines in the channel. The channel is read
+     * backwards from the end in fixed size blocks, so the amount read depends on the number of lines rather than the
+     * size of the file.
+     *
+     * @param channel the channel to read
+     * @param lines   the number of lines from the end of the channel
+     *
+     * @return the position of the first of the lines or {@code 0} if the channel has fewer lines
+     *
+     * @throws IOException if an error occurs reading the channel
+     */
+    static long tailPosition(final SeekableByteChannel channel, final int lines) throws IOException {
+        return tailPosition(channel, channel.size(), lines);
+    }
+
+    /**
+     * Finds the position of the first byte of the last {@code lines} lines before the end position in the channel.
+     * Empty lines are not counted.
+     *
+     * @param channel the channel to read
+     * @param size    the position directly after the last line
+     * @param lines   the number of lines before the end position
+     *
+     * @return the position of the first of the lines or {@code 0} if the channel has fewer lines
+     *
+     * @throws IOException if an error occurs reading the channel
+     *
+     * @see #tailPosition(SeekableByteChannel, int)
+     */
+    static long tailPosition(final SeekableByteChannel channel, final long size, final int lines) throws IOException {
+        if (lines <= 0) {
+            return size;
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE);
+        long end = size;
+        int found = 0;
+        // The position of the new line terminating the line after the current new line and the first byte of the line
+        long lineEnd = size;
+        byte next = 0;
+        while (end > 0) {
+            final long start = Math.max(0L, end - BLOCK_SIZE);
+            buffer.clear().limit((int) (end - start));
+            channel.position(start);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+            }
+            for (int i = buffer.position() - 1; i >= 0; i--) {
+                final byte b = buffer.get(i);
+                if (b == '\n') {
+                    final long position = start + i;
+                    // The new line terminating the last line does not start a line and empty lines are not counted
+                    final long length = lineEnd - position - 1;
+                    if (position != size - 1 && (length > 1 || (length == 1 && next != '\r'))) {
+                        if (++found == lines) {
+                            return position + 1;
+                        }
+                    }
+                    lineEnd = position;
+                }
+                next = b;
+            }
+            end = start;
+        }
+        return 0L;
+    }
+
+    /**
+     * Reads the timestamp of the record starting at the position. The JSON formatter writes the timestamp as the first
+     * property, so only the beginning of the line is read and the timestamp is found without parsing the record.
+     *
+     * @param channel  the channel to read
+     * @param position the position of the first byte of the line
+     *
+     * @return the timestamp in milliseconds since the epoch or {@link #NO_TIMESTAMP} if the timestamp could not be
+     * found
+     *
+     * @throws IOException if an error occurs reading the channel
+     */
+    static long readTimestamp(final FileChannel channel, final long position) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(TIMESTAMP_READ_SIZE);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        return parseTimestamp(buffer);
+    }
+
+    /**
+     * Reads the timestamp of the first record in the stream. Only the beginning of the stream is read.
+     *
+     * @param in the stream to read
+     *
+     * @return the timestamp in milliseconds since the epoch or {@link #NO_TIMESTAMP} if the timestamp could not be
+     * found
+     *
+     * @throws IOException if an error occurs reading the stream
+     */
+    static long readTimestamp(final InputStream in) throws IOException {
+        final byte[] bytes = new byte[TIMESTAMP_READ_SIZE];
+        int len = 0;
+        int read;
+        while (len < bytes.length && (read = in.read(bytes, len, bytes.length - len)) > 0) {
+            len += read;
+        }
+        return parseTimestamp(ByteBuffer.wrap(bytes, 0, len));
+    }
+
+    /**
+     * Reads each line of the stream and passes it to the handler. Like the {@link MappedLogReader} a trailing
+     * {@code \r} is removed and empty lines are skipped. The buffer passed to the handler is only valid until the
+     * handler returns.
+     *
+     * @param in      the stream to read
+     * @param handler the handler for each line
+     *
+     * @throws IOException if an error occurs reading the stream or handling a line
+     */
+    static void readLines(final InputStream in, final MappedLogReader.LineHandler handler) throws IOException {
+        byte[] buffer = new byte[READ_SIZE];
+        int length = 0;
+        int read;
+        while ((read = in.read(buffer, length, buffer.length - length)) >= 0) {
+            int lineStart = 0;
+            for (int i = length; i < length + read; i++) {
+                if (buffer[i] == '\n') {
+                    if (!handleLine(buffer, lineStart, i, handler)) {
+                        return;
+                    }
+                    lineStart = i + 1;
+                }
+            }
+            length += read;
+            // Move the partial line to the start of the buffer, growing the buffer if the line does not fit
+            length -= lineStart;
+            System.arraycopy(buffer, lineStart, buffer, 0, length);
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length << 1);
+            }
+        }
+        // A rotated file is complete, so a last line without a new line is still a record
+        handleLine(buffer, 0, length, handler);
+    }
+
+    private static boolean handleLine(final byte[] buffer, final int start, final int end, final MappedLogReader.LineHandler handler)
+            throws IOException {
+        final int len = end > start && buffer[end - 1] == '\r' ? end - start - 1 : end - start;
+        return len == 0 || handler.handle(ByteBuffer.wrap(buffer, start, len));
+    }
+
+    /**
+     * Finds the timestamp in the record between the buffers position and limit without parsing the record. The
+     * buffers position and limit are not changed.
+     *
+     * @param line the buffer containing the record
+     *
+     * @return the timestamp in milliseconds since the epoch or {@link #NO_TIMESTAMP} if the timestamp could not be
+     * found
+     */
+    static long parseTimestamp(final ByteBuffer line) {
+        final int limit = line.limit();
+        int start = -1;
+        for (int i = line.position(); i <= limit - TIMESTAMP_KEY.length; i++) {
+            if (line.get(i) == '\n') {
+                return NO_TIMESTAMP;
+            }
+            if (regionMatches(line, i, TIMESTAMP_KEY)) {
+                start = i + TIMESTAMP_KEY.length;
+                break;
+            }
+        }
+        if (start < 0) {
+            return NO_TIMESTAMP;
+        }
+        for (int i = start; i < limit; i++) {
+            if (line.get(i) == '"') {
+                final char[] chars = new char[i - start];
+                for (int j = 0; j < chars.length; j++) {
+                    chars[j] = (char) line.get(start + j);
+                }
+                try {
+                    return OffsetDateTime.parse(CharBuffer.wrap(chars)).toInstant().toEpochMilli();
+                } catch (DateTimeParseException e) {
+                    return NO_TIMESTAMP;
+                }
+            }
+        }
+        return NO_TIMESTAMP;
+    }
+
+    /**
+     * Identifies a log file by its file key and creation time. A log file which was rotated or replaced has a
+     * different identity even if it has the same path and has grown past the size of the previous file.
+     */
+    static final class Identity {
+        private final String key;
+        private final long creationTime;
+
+        private Identity(final String key, final long creationTime) {
+            this.key = key;
+            this.creationTime = creationTime;
+        }
+
+        /**
+         * Reads the identity of the file.
+         *
+         * @param file the file
+         *
+         * @return the identity of the file
+         *
+         * @throws IOException if the attributes of the file could not be read
+         */
+        static Identity of(final Path file) throws IOException {
+            final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return new Identity(String.valueOf(attributes.fileKey()), attributes.creationTime().toMillis());
+        }
+
+        String getKey() {
+            return key;
+        }
+
+        long getCreationTime() {
+            return creationTime;
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() * 31 + Long.hashCode(creationTime);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof Identity)) {
+                return false;
+            }
+            final Identity other = (Identity) obj;
+            return key.equals(other.key) && creationTime == other.creationTime;
+        }
+    }
+
+    private static boolean regionMatches(final ByteBuffer buffer, final int offset, final byte[] value) {
+        for (int i = 0; i < value.length; i++) {
+            if (buffer.get(offset + i) != value[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
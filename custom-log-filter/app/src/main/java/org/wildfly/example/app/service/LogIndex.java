@@ -0,0 +1,343 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2019 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.example.app.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+
+import org.jboss.logging.Logger;
+
+/**
+ * A sparse index of a log file. Every {@value #INTERVAL} lines the byte offset and timestamp of the line is recorded
+ * which allows reads to seek close to a line number or timestamp rather than scanning the file from the beginning.
+ * <p>
+ * A line is a record, which is a line of the file that is not empty once a trailing {@code \r} is removed. Empty lines
+ * are not counted, so the zero based line number is the same number the {@link MappedLogReader} and
+ * {@link RecentRecords} use for a record and the same as the offset of the record in an unfiltered read.
+ * </p>
+ * <p>
+ * The index is updated incrementally by only scanning the bytes written since the last update. If the log file is
+ * replaced, for example when it is rotated or truncated on a restart, the index is rebuilt. The index is persisted
+ * to a sidecar file so it survives a redeploy of the application. New positions are appended to the sidecar file, it
+ * is only rewritten when the index is rebuilt or loaded.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+class LogIndex {
+
+    /**
+     * The number of lines between each indexed position.
+     */
+    static final int INTERVAL = 1024;
+
+    private static final Logger LOGGER = Logger.getLogger(LogIndex.class.getName());
+    private static final int MAGIC = 0x4C4F4758;
+    private static final int VERSION = 2;
+    private static final int READ_SIZE = 65536;
+
+    private final Path indexFile;
+    private boolean loaded;
+    private String fileKey = "";
+    private long creationTime;
+    private long indexedLength;
+    private long lineCount;
+    private long[] offsets = new long[16];
+    private long[] timestamps = new long[16];
+    private int size;
+    // The number of positions written to the sidecar file or -1 if the file must be rewritten
+    private int persistedSize = -1;
+
+    /**
+     * Creates a new index.
+     *
+     * @param indexFile the file the index is persisted to or {@code null} if the index should not be persisted
+     */
+    LogIndex(final Path indexFile) {
+        this.indexFile = indexFile;
+    }
+
+    /**
+     * Updates the index with any lines written since the last update. If the log file has been replaced the index is
+     * rebuilt.
+     *
+     * @param logFile the path to the log file
+     * @param channel a channel opened for the log file
+     *
+     * @throws IOException if an error occurs reading the log file
+     */
+    synchronized void update(final Path logFile, final FileChannel channel) throws IOException {
+        if (!loaded) {
+            load();
+            loaded = true;
+        }
+        final LogFiles.Identity identity = LogFiles.Identity.of(logFile);
+        final String key = identity.getKey();
+        final long created = identity.getCreationTime();
+        final long length = channel.size();
+        if (!key.equals(fileKey) || created != creationTime || length < indexedLength ||
+                (size > 0 && LogFiles.readTimestamp(channel, 0L) != timestamps[0])) {
+            reset(key, created);
+        }
+        if (length > indexedLength) {
+            scan(channel, length);
+            if (size != persistedSize) {
+                persist();
+            }
+        }
+    }
+
+    /**
+     * Returns the position directly after the last indexed line. The line number of the position is the number of
+     * lines indexed.
+     *
+     * @return the position after the last indexed line
+     */
+    synchronized Position end() {
+        return new Position(indexedLength, lineCount);
+    }
+
+    /**
+     * Returns the closest indexed position at or before the line.
+     *
+     * @param line the zero based line number
+     *
+     * @return the closest indexed position
+     */
+    synchronized Position seek(final long line) {
+        if (size == 0 || line <= 0) {
+            return Position.START;
+        }
+        final int i = (int) Math.min(line / INTERVAL, size - 1);
+        return new Position(offsets[i], (long) i * INTERVAL);
+    }
+
+    /**
+     * Returns the closest indexed position whose timestamp is before the instant. Reading from the position will not
+     * miss any record at or after the instant.
+     *
+     * @param instant the instant to find the position for
+     *
+     * @return the closest indexed position
+     */
+    synchronized Position seek(final Instant instant) {
+        final long millis = instant.toEpochMilli();
+        int low = 0;
+        int high = size - 1;
+        int found = -1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (timestamps[mid] < millis) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (found < 0) {
+            return Position.START;
+        }
+        return new Position(offsets[found], (long) found * INTERVAL);
+    }
+
+    private void reset(final String key, final long created) {
+        fileKey = key;
+        creationTime = created;
+        indexedLength = 0L;
+        lineCount = 0L;
+        size = 0;
+        persistedSize = -1;
+    }
+
+    private void scan(final FileChannel channel, final long length) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(READ_SIZE);
+        long position = indexedLength;
+        long lineStart = indexedLength;
+        byte previous = 0;
+        while (position < length) {
+            buffer.clear();
+            buffer.limit((int) Math.min(READ_SIZE, length - position));
+            final int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                final byte b = buffer.get(i);
+                if (b == '\n') {
+                    final long lineLength = position + i - lineStart;
+                    // Empty lines, including a line with only a \r, are not records and are not counted
+                    if (lineLength > 1 || (lineLength == 1 && previous != '\r')) {
+                        if (lineCount % INTERVAL == 0) {
+                            add(lineStart, LogFiles.readTimestamp(channel, lineStart));
+                        }
+                        lineCount++;
+                    }
+                    lineStart = position + i + 1;
+                }
+                previous = b;
+            }
+            position += read;
+        }
+        // Only complete lines are indexed, a partially written line is picked up on the next update
+        indexedLength = lineStart;
+    }
+
+    private void add(final long offset, final long timestamp) {
+        if (size == offsets.length) {
+            offsets = Arrays.copyOf(offsets, size << 1);
+            timestamps = Arrays.copyOf(timestamps, size << 1);
+        }
+        offsets[size] = offset;
+        timestamps[size] = timestamp;
+        size++;
+    }
+
+    private void load() {
+        if (indexFile == null || Files.notExists(indexFile)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != INTERVAL) {
+                return;
+            }
+            final String key = in.readUTF();
+            final long created = in.readLong();
+            long[] offsets = new long[16];
+            long[] timestamps = new long[16];
+            int count = 0;
+            while (true) {
+                final long offset;
+                final long timestamp;
+                try {
+                    offset = in.readLong();
+                    timestamp = in.readLong();
+                } catch (EOFException e) {
+                    // The end of the file or a partially appended position
+                    break;
+                }
+                if (count == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, count << 1);
+                    timestamps = Arrays.copyOf(timestamps, count << 1);
+                }
+                offsets[count] = offset;
+                timestamps[count] = timestamp;
+                count++;
+            }
+            if (count == 0) {
+                return;
+            }
+            // Only the positions are persisted, the lines after the last position are scanned again which adds the
+            // last position back
+            count--;
+            fileKey = key;
+            creationTime = created;
+            indexedLength = offsets[count];
+            lineCount = (long) count * INTERVAL;
+            this.offsets = offsets;
+            this.timestamps = timestamps;
+            size = count;
+        } catch (IOException e) {
+            LOGGER.warnf(e, "Could not read the log index %s, the index will be rebuilt.", indexFile);
+        }
+    }
+
+    private void persist() {
+        if (indexFile == null) {
+            return;
+        }
+        try {
+            if (persistedSize < 0 || persistedSize > size) {
+                Files.createDirectories(indexFile.getParent());
+                final Path tmp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+                try (DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(VERSION);
+                    out.writeInt(INTERVAL);
+                    out.writeUTF(fileKey);
+                    out.writeLong(creationTime);
+                    writePositions(out, 0);
+                }
+                Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } else {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                        Files.newOutputStream(indexFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND)))) {
+                    writePositions(out, persistedSize);
+                }
+            }
+            persistedSize = size;
+        } catch (IOException e) {
+            persistedSize = -1;
+            LOGGER.warnf(e, "Could not write the log index %s.", indexFile);
+        }
+    }
+
+    private void writePositions(final DataOutputStream out, final int from) throws IOException {
+        for (int i = from; i < size; i++) {
+            out.writeLong(offsets[i]);
+            out.writeLong(timestamps[i]);
+        }
+    }
+
+    /**
+     * An indexed position in the log file.
+     */
+    static class Position {
+        static final Position START = new Position(0L, 0L);
+
+        private final long offset;
+        private final long line;
+
+        private Position(final long offset, final long line) {
+            this.offset = offset;
+            this.line = line;
+        }
+
+        /**
+         * The byte offset of the line in the log file.
+         *
+         * @return the byte offset
+         */
+        long getOffset() {
+            return offset;
+        }
+
+        /**
+         * The zero based line number.
+         *
+         * @return the line number
+         */
+        long getLine() {
+            return line;
+        }
+    }
+}
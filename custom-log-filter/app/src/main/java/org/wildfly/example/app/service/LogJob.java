@@ -0,0 +1,177 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2019 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.example.app.service;
+
+import java.time.Instant;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * A running logging job and its statistics.
+ * <p>
+ * The time spent in each {@code logger.log} invocation is recorded to a {@link Recorder} which allows any number of
+ * threads to record without locking. The drift is how late a message was logged compared to when it was scheduled.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class LogJob {
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final String id;
+    private final long sequence;
+    private final LongAdder emitted = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final Recorder logTime = new Recorder(SIGNIFICANT_DIGITS);
+    private final Histogram totalLogTime = new Histogram(SIGNIFICANT_DIGITS);
+    private final LongAccumulator maxDrift = new LongAccumulator(Math::max, 0L);
+    private volatile long lastDrift;
+    private volatile Throwable lastError;
+    private volatile Instant lastErrorTime;
+    private volatile Future<?> future;
+
+    LogJob(final String id, final long sequence) {
+        this.id = id;
+        this.sequence = sequence;
+    }
+
+    /**
+     * Records a logged message.
+     *
+     * @param scheduledNanos the {@link System#nanoTime()} the message was scheduled to be logged at
+     * @param startNanos     the {@link System#nanoTime()} before the message was logged
+     * @param endNanos       the {@link System#nanoTime()} after the message was logged
+     */
+    void record(final long scheduledNanos, final long startNanos, final long endNanos) {
+        emitted.increment();
+        logTime.recordValue(endNanos - startNanos);
+        final long drift = Math.max(0L, startNanos - scheduledNanos);
+        lastDrift = drift;
+        maxDrift.accumulate(drift);
+    }
+
+    /**
+     * Records an error thrown while logging a message.
+     *
+     * @param error the error
+     */
+    void recordError(final Throwable error) {
+        errors.increment();
+        lastErrorTime = Instant.now();
+        lastError = error;
+    }
+
+    /**
+     * Returns the job id.
+     *
+     * @return the job id
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Returns the sequence of the job, jobs started later have a higher sequence.
+     *
+     * @return the sequence
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Returns the number of messages logged.
+     *
+     * @return the number of messages logged
+     */
+    public long getEmitted() {
+        return emitted.sum();
+    }
+
+    /**
+     * Returns the number of errors thrown while logging.
+     *
+     * @return the number of errors
+     */
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    /**
+     * Returns the time spent in {@code logger.log} for all messages logged so far.
+     *
+     * @return a copy of the histogram of the time spent logging in nanoseconds
+     */
+    public Histogram getLogTime() {
+        synchronized (totalLogTime) {
+            totalLogTime.add(logTime.getIntervalHistogram());
+            return totalLogTime.copy();
+        }
+    }
+
+    /**
+     * Returns how late the last message was logged compared to when it was scheduled.
+     *
+     * @return the drift of the last message in nanoseconds
+     */
+    public long getLastDrift() {
+        return lastDrift;
+    }
+
+    /**
+     * Returns the largest drift of any message.
+     *
+     * @return the maximum drift in nanoseconds
+     */
+    public long getMaxDrift() {
+        return maxDrift.get();
+    }
+
+    /**
+     * Returns the last error thrown while logging.
+     *
+     * @return the last error or {@code null} if there have been no errors
+     */
+    public Throwable getLastError() {
+        return lastError;
+    }
+
+    /**
+     * Returns the time of the last error.
+     *
+     * @return the time of the last error or {@code null} if there have been no errors
+     */
+    public Instant getLastErrorTime() {
+        return lastErrorTime;
+    }
+
+    Future<?> getFuture() {
+        return future;
+    }
+
+    void setFuture(final Future<?> future) {
+        this.future = future;
+    }
+}
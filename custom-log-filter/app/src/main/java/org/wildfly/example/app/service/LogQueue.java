@@ -0,0 +1,278 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2019 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.example.app.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jboss.logging.Logger;
+
+/**
+ * A bounded queue of log messages which are logged by a single consumer thread. Any number of threads may submit
+ * messages. When the queue is full the {@link OverflowPolicy} determines whether the submitter waits or a message is
+ * dropped.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class LogQueue {
+
+    private static final int DRAIN_SIZE = 256;
+
+    private final Logger logger;
+    private final BlockingQueue<Entry> queue;
+    private final int capacity;
+    private final OverflowPolicy policy;
+    private final int sampleRate;
+    private final int sampleThreshold;
+    private final AtomicLong sampleCounter = new AtomicLong();
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder logged = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private Thread consumer;
+    private volatile boolean running;
+
+    /**
+     * Creates a new queue.
+     *
+     * @param logger     the logger messages are logged to
+     * @param capacity   the maximum number of queued messages
+     * @param policy     the policy used when the queue is full
+     * @param sampleRate for the {@link OverflowPolicy#SAMPLE} policy one in this many messages is queued once the
+     *                   queue is mostly full
+     */
+    LogQueue(final Logger logger, final int capacity, final OverflowPolicy policy, final int sampleRate) {
+        this.logger = logger;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.capacity = capacity;
+        this.policy = policy;
+        this.sampleRate = Math.max(1, sampleRate);
+        sampleThreshold = capacity - (capacity >> 2);
+    }
+
+    /**
+     * Starts the consumer thread.
+     *
+     * @param threadFactory the factory used to create the consumer thread
+     */
+    synchronized void start(final ThreadFactory threadFactory) {
+        if (consumer == null) {
+            running = true;
+            consumer = threadFactory.newThread(this::consume);
+            consumer.start();
+        }
+    }
+
+    /**
+     * Stops the consumer thread and logs any messages still in the queue on the calling thread.
+     */
+    synchronized void stop() {
+        running = false;
+        if (consumer != null) {
+            consumer.interrupt();
+            try {
+                consumer.join(TimeUnit.SECONDS.toMillis(5L));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            consumer = null;
+        }
+        final List<Entry> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        remaining.forEach(this::log);
+    }
+
+    /**
+     * Attempts to queue the message without waiting. For the {@link OverflowPolicy#BLOCK} policy the message is not
+     * queued if the queue is full and the caller is expected to {@linkplain #put(Entry, long) wait}.
+     *
+     * @param entry the message to queue
+     *
+     * @return {@code true} if the message was queued, {@code false} if it was not
+     */
+    boolean offer(final Entry entry) {
+        switch (policy) {
+            case DROP_OLDEST:
+                while (!queue.offer(entry)) {
+                    if (queue.poll() != null) {
+                        dropped.increment();
+                    }
+                }
+                enqueued.increment();
+                return true;
+            case SAMPLE:
+                if (queue.size() >= sampleThreshold && sampleCounter.incrementAndGet() % sampleRate != 0) {
+                    dropped.increment();
+                    return false;
+                }
+                return offerOrDrop(entry);
+            case DROP_NEWEST:
+                return offerOrDrop(entry);
+            default:
+                if (queue.offer(entry)) {
+                    enqueued.increment();
+                    return true;
+                }
+                return false;
+        }
+    }
+
+    /**
+     * Queues the message, waiting for space in the queue if required.
+     *
+     * @param entry         the message to queue
+     * @param timeoutMillis the maximum time to wait in milliseconds
+     *
+     * @return {@code true} if the message was queued, {@code false} if the message was dropped because the timeout
+     * elapsed
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean put(final Entry entry, final long timeoutMillis) throws InterruptedException {
+        if (queue.offer(entry, timeoutMillis, TimeUnit.MILLISECONDS)) {
+            enqueued.increment();
+            return true;
+        }
+        dropped.increment();
+        return false;
+    }
+
+    /**
+     * Returns the policy used when the queue is full.
+     *
+     * @return the overflow policy
+     */
+    public OverflowPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Returns the maximum number of queued messages.
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of messages currently queued.
+     *
+     * @return the queue depth
+     */
+    public int getDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Returns the number of messages which have been queued.
+     *
+     * @return the number of queued messages
+     */
+    public long getEnqueued() {
+        return enqueued.sum();
+    }
+
+    /**
+     * Returns the number of messages the consumer has logged.
+     *
+     * @return the number of logged messages
+     */
+    public long getLogged() {
+        return logged.sum();
+    }
+
+    /**
+     * Returns the number of messages which were dropped because the queue was full.
+     *
+     * @return the number of dropped messages
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Returns the number of messages which failed to be logged because the logger threw an exception.
+     *
+     * @return the number of failed messages
+     */
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    private boolean offerOrDrop(final Entry entry) {
+        if (queue.offer(entry)) {
+            enqueued.increment();
+            return true;
+        }
+        dropped.increment();
+        return false;
+    }
+
+    private void consume() {
+        final List<Entry> batch = new ArrayList<>(DRAIN_SIZE);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, DRAIN_SIZE - 1);
+                batch.forEach(this::log);
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void log(final Entry entry) {
+        try {
+            entry.log(logger);
+            logged.increment();
+        } catch (RuntimeException e) {
+            // A failing handler must not stop the consumer, the message is counted and the next one is logged
+            failed.increment();
+        }
+    }
+
+    /**
+     * A queued message.
+     */
+    static class Entry {
+        private final Logger.Level level;
+        private final String message;
+        private final Throwable cause;
+
+        Entry(final Logger.Level level, final String message, final Throwable cause) {
+            this.level = level;
+            this.message = message;
+            this.cause = cause;
+        }
+
+        void log(final Logger logger) {
+            logger.log(level, message, cause);
+        }
+    }
+}
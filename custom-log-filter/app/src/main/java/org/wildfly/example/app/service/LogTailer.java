@@ -0,0 +1,381 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2019 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.example.app.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedThreadFactory;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Initialized;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.sse.OutboundSseEvent;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
+
+import org.jboss.logging.Logger;
+
+/**
+ * A singleton resource which tails the {@code deployment.log} file, keeps the most recent records in memory and
+ * pushes new records to subscribers as server sent events.
+ * <p>
+ * A single thread, started when the application is initialized, watches the log file and reads the bytes appended
+ * since the last read. It is the only writer of the {@linkplain DeploymentLog#getRecentRecords() recent records}, so
+ * reads of recent records do not need to access the file. Each new record is also sent to every subscriber. A
+ * subscriber which has too many events waiting to be sent has new events dropped rather than buffering them without
+ * a bound.
+ * </p>
+ * <p>
+ * A failure to read the file, for example when it is rotated while being opened, is logged and the file is read
+ * again on the next poll. A rotated file is detected by its {@linkplain LogFiles.Identity identity}, so a new file
+ * which has already grown past the previous read position is still read from the beginning.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+@Singleton
+public class LogTailer {
+
+    private static final int MAX_PENDING_EVENTS = 256;
+    private static final int READ_SIZE = 65536;
+
+    @Inject
+    private Logger logger;
+
+    @Inject
+    private DeploymentLog deploymentLog;
+
+    @Resource
+    private ManagedThreadFactory threadFactory;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private Thread thread;
+    private volatile boolean running;
+
+    /**
+     * Starts tailing the log file when the application is initialized so the recent records are available before the
+     * first read.
+     *
+     * @param event the initialized event
+     */
+    public void init(@Observes @Initialized(ApplicationScoped.class) final Object event) {
+        start();
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+        for (Subscriber subscriber : subscribers) {
+            subscriber.close();
+        }
+    }
+
+    /**
+     * Subscribes the event sink to new log records. Each record is sent as a {@code log} event with the JSON record
+     * as the data.
+     *
+     * @param sink the sink to send the events to
+     * @param sse  the SSE context used to create the events
+     */
+    public void subscribe(final SseEventSink sink, final Sse sse) {
+        subscribers.add(new Subscriber(sink, sse));
+        start();
+    }
+
+    private synchronized void start() {
+        if (thread == null) {
+            running = true;
+            thread = threadFactory.newThread(this::tail);
+            thread.start();
+        }
+    }
+
+    private void tail() {
+        final Path logFile = deploymentLog.getLogFile();
+        final RecentRecords recentRecords = deploymentLog.getRecentRecords();
+        boolean failed = false;
+        try (WatchService watcher = logFile.getFileSystem().newWatchService()) {
+            logFile.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            final Tail tail = new Tail(logFile, recentRecords);
+            boolean retrying = false;
+            while (running) {
+                try {
+                    if (!tail.isStarted()) {
+                        tail.backfill();
+                    }
+                    // Poll with a timeout as some watch service implementations can be slow to report changes
+                    final WatchKey key = watcher.poll(1L, TimeUnit.SECONDS);
+                    if (key != null) {
+                        key.pollEvents();
+                        key.reset();
+                    }
+                    tail.read();
+                    retrying = false;
+                } catch (IOException | RuntimeException e) {
+                    // For example the file was rotated while being opened, the file is read again on the next poll
+                    if (retrying) {
+                        logger.debugf(e, "Failed to tail the log file %s", logFile);
+                    } else {
+                        logger.warnf(e, "Failed to tail the log file %s, retrying", logFile);
+                        retrying = true;
+                    }
+                    tail.restart();
+                    TimeUnit.SECONDS.sleep(1L);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            failed = true;
+            logger.errorf(e, "Failed to tail the log file %s", logFile);
+        } finally {
+            synchronized (this) {
+                if (thread == Thread.currentThread()) {
+                    // The recent records are no longer updated, clear them so reads use the log file
+                    recentRecords.reset(0L);
+                    thread = null;
+                    if (failed) {
+                        // Tailing can not continue, close the subscribers rather than leave them without events
+                        for (Subscriber subscriber : subscribers) {
+                            subscriber.close();
+                        }
+                    } else if (running && !subscribers.isEmpty()) {
+                        start();
+                    }
+                }
+            }
+        }
+    }
+
+    private static byte[] toRecord(final byte[] line) {
+        int length = line.length;
+        if (length > 0 && line[length - 1] == '\r') {
+            length--;
+        }
+        return length == line.length ? line : Arrays.copyOf(line, length);
+    }
+
+    private static void add(final RecentRecords recentRecords, final byte[] record) {
+        // Empty lines are not added so the sequence stays equal to the line number used by the index
+        recentRecords.add(LogFiles.parseTimestamp(ByteBuffer.wrap(record)), record);
+    }
+
+    private void publish(final String record) {
+        if (record.isEmpty()) {
+            return;
+        }
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.sink.isClosed()) {
+                subscribers.remove(subscriber);
+            } else {
+                subscriber.send(record);
+            }
+        }
+    }
+
+    /**
+     * The state of the tail thread, the position read to in the log file and the identity of the file.
+     */
+    private class Tail {
+        private final Path logFile;
+        private final RecentRecords recentRecords;
+        private final ByteBuffer buffer = ByteBuffer.allocate(READ_SIZE);
+        private final ByteArrayOutputStream partial = new ByteArrayOutputStream();
+        private LogFiles.Identity identity;
+        private long position = -1L;
+
+        private Tail(final Path logFile, final RecentRecords recentRecords) {
+            this.logFile = logFile;
+            this.recentRecords = recentRecords;
+        }
+
+        boolean isStarted() {
+            return position >= 0L;
+        }
+
+        /**
+         * Discards the position so the recent records are filled again from the log file.
+         */
+        void restart() {
+            position = -1L;
+            partial.reset();
+        }
+
+        /**
+         * Fills the recent records with the last lines of the log file. The index is used to find the end of the last
+         * complete line and its line number, so each record is added with its line number as the sequence. As with
+         * the index, empty lines are not records and are skipped.
+         */
+        void backfill() throws IOException {
+            partial.reset();
+            if (Files.notExists(logFile)) {
+                identity = null;
+                position = 0L;
+                recentRecords.reset(0L);
+                return;
+            }
+            final LogIndex index = deploymentLog.getIndex();
+            try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+                identity = LogFiles.Identity.of(logFile);
+                index.update(logFile, channel);
+                final LogIndex.Position end = index.end();
+                final long start = LogFiles.tailPosition(channel, end.getOffset(), recentRecords.capacity());
+                final int length = (int) (end.getOffset() - start);
+                final ByteBuffer bytes = ByteBuffer.allocate(length);
+                while (bytes.hasRemaining() && channel.read(bytes, start + bytes.position()) > 0) {
+                    // Read until the buffer is full
+                }
+                final byte[] data = bytes.array();
+                final List<byte[]> records = new ArrayList<>();
+                int lineStart = 0;
+                for (int i = 0; i < length; i++) {
+                    if (data[i] == '\n') {
+                        final byte[] record = toRecord(Arrays.copyOfRange(data, lineStart, i));
+                        if (record.length > 0) {
+                            records.add(record);
+                        }
+                        lineStart = i + 1;
+                    }
+                }
+                recentRecords.reset(end.getLine() - records.size());
+                for (byte[] record : records) {
+                    add(recentRecords, record);
+                }
+                position = end.getOffset();
+            }
+        }
+
+        /**
+         * Reads the records appended since the last read, adds them to the recent records and publishes them.
+         */
+        void read() throws IOException {
+            if (Files.notExists(logFile)) {
+                return;
+            }
+            try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+                final LogFiles.Identity current = LogFiles.Identity.of(logFile);
+                final long size = channel.size();
+                if (!current.equals(identity) || size < position) {
+                    // The file was rotated, truncated or replaced, start from the beginning of the new file
+                    identity = current;
+                    position = 0L;
+                    partial.reset();
+                    recentRecords.reset(0L);
+                }
+                while (position < size) {
+                    buffer.clear();
+                    final int read = channel.read(buffer, position);
+                    if (read <= 0) {
+                        break;
+                    }
+                    int lineStart = 0;
+                    for (int i = 0; i < read; i++) {
+                        if (buffer.get(i) == '\n') {
+                            partial.write(buffer.array(), lineStart, i - lineStart);
+                            final byte[] record = toRecord(partial.toByteArray());
+                            if (record.length > 0) {
+                                add(recentRecords, record);
+                                if (!subscribers.isEmpty()) {
+                                    publish(new String(record, StandardCharsets.UTF_8).trim());
+                                }
+                            }
+                            partial.reset();
+                            lineStart = i + 1;
+                        }
+                    }
+                    partial.write(buffer.array(), lineStart, read - lineStart);
+                    position += read;
+                }
+            }
+        }
+    }
+
+    private class Subscriber {
+        private final SseEventSink sink;
+        private final Sse sse;
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicLong dropped = new AtomicLong();
+
+        private Subscriber(final SseEventSink sink, final Sse sse) {
+            this.sink = sink;
+            this.sse = sse;
+        }
+
+        void send(final String record) {
+            if (pending.incrementAndGet() > MAX_PENDING_EVENTS) {
+                pending.decrementAndGet();
+                dropped.incrementAndGet();
+                return;
+            }
+            try {
+                final OutboundSseEvent event = sse.newEventBuilder()
+                        .name("log")
+                        .mediaType(MediaType.APPLICATION_JSON_TYPE)
+                        .data(record)
+                        .build();
+                sink.send(event).whenComplete((result, error) -> {
+                    pending.decrementAndGet();
+                    if (error != null) {
+                        logger.debugf("Failed to send event to subscriber, %d events were dropped: %s", dropped.get(), error);
+                        close();
+                    }
+                });
+            } catch (RuntimeException e) {
+                // The sink was closed after it was checked, only this subscriber is removed
+                pending.decrementAndGet();
+                logger.debugf("Failed to send event to subscriber, %d events were dropped: %s", dropped.get(), e);
+                close();
+            }
+        }
+
+        void close() {
+            subscribers.remove(this);
+            try {
+                sink.close();
+            } catch (RuntimeException e) {
+                logger.debugf("Failed to close the event sink: %s", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2019 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.example.app.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads the lines of a log file through memory mapped windows of the file. Lines are found by scanning the mapped
+ * bytes for new lines and are handed to a {@link LineHandler} as a view of the mapped bytes, so no line is decoded to
+ * a {@link String} or copied unless the handler does so.
+ * <p>
+ * Only lines terminated by a new line are read. A partially written last line is ignored.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+class MappedLogReader {
+
+    private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * Handles a single line.
+     */
+    interface LineHandler {
+
+        /**
+         * Handles the line. The buffers position is the first byte of the line and the limit is the end of the line,
+         * excluding the line terminator. The buffer is only valid for the duration of the call.
+         *
+         * @param line the buffer containing the line
+         *
+         * @return {@code true} to continue reading lines or {@code false} to stop
+         *
+         * @throws IOException if an error occurs handling the line
+         */
+        boolean handle(ByteBuffer line) throws IOException;
+    }
+
+    /**
+     * Reads the lines of the channel starting at the position.
+     *
+     * @param channel  the channel to read
+     * @param position the position of the first byte of the first line to read
+     * @param handler  the handler for each line
+     *
+     * @throws IOException if an error occurs reading the channel or handling a line
+     */
+    static void read(final FileChannel channel, final long position, final LineHandler handler) throws IOException {
+        final long size = channel.size();
+        long windowStart = position;
+        int windowSize = WINDOW_SIZE;
+        while (windowStart < size) {
+            final int len = (int) Math.min(windowSize, size - windowStart);
+            // The mapping is released when the buffer is garbage collected
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, len);
+            final ByteBuffer view = buffer.duplicate();
+            int lineStart = 0;
+            for (int i = 0; i < len; i++) {
+                if (buffer.get(i) == '\n') {
+                    int lineEnd = i;
+                    if (lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r') {
+                        lineEnd--;
+                    }
+                    if (lineEnd > lineStart) {
+                        view.clear();
+                        view.position(lineStart);
+                        view.limit(lineEnd);
+                        if (!handler.handle(view)) {
+                            return;
+                        }
+                    }
+                    lineStart = i + 1;
+                }
+            }
+            if (lineStart == 0) {
+                if (windowStart + len >= size) {
+                    // Only a partially written line remains
+                    return;
+                }
+                // A single line is larger than the window
+                if (windowSize > Integer.MAX_VALUE / 2) {
+                    throw new IOException(String.format("Line at position %d is too large to be read.", windowStart));
+                }
+                windowSize <<= 1;
+            } else {
+                windowStart += lineStart;
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2019 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.example.app.service;
+
+import java.util.Locale;
+
+/**
+ * Defines what happens when a message is submitted to a full {@link LogQueue}.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public enum OverflowPolicy {
+    /**
+     * The submitter waits until there is space in the queue.
+     */
+    BLOCK,
+    /**
+     * The oldest queued message is dropped to make room for the new message.
+     */
+    DROP_OLDEST,
+    /**
+     * The new message is dropped.
+     */
+    DROP_NEWEST,
+    /**
+     * Once the queue is mostly full only a sample of new messages are queued, the rest are dropped.
+     */
+    SAMPLE;
+
+    /**
+     * Parses the policy ignoring case and allowing {@code -} as a separator.
+     *
+     * @param value        the value to parse
+     * @param defaultValue the policy to use if the value is {@code null} or not a valid policy
+     *
+     * @return the policy
+     */
+    static OverflowPolicy parse(final String value, final OverflowPolicy defaultValue) {
+        if (value != null) {
+            final String name = value.trim().replace('-', '_').toUpperCase(Locale.ROOT);
+            for (OverflowPolicy policy : values()) {
+                if (policy.name().equals(name)) {
+                    return policy;
+                }
+            }
+        }
+        return defaultValue;
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2019 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.example.app.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded ring buffer of the most recent records of the log file. Each record is stored with its sequence, which
+ * is the zero based line number of the record in the log file. Empty lines are not records, the line number is the
+ * same as the one used by the {@link LogIndex}.
+ * <p>
+ * There must only be a single writer. Readers do not lock, a record read from a slot is only used if its sequence is
+ * the one expected for the slot which detects records overwritten while being read.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+class RecentRecords {
+
+    private final int capacity;
+    private volatile Ring ring;
+
+    /**
+     * Creates a new ring buffer.
+     *
+     * @param capacity the maximum number of records, must be a power of two
+     */
+    RecentRecords(final int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("The capacity must be a power of two: " + capacity);
+        }
+        this.capacity = capacity;
+        ring = new Ring(capacity, 0L);
+    }
+
+    /**
+     * Returns the maximum number of records.
+     *
+     * @return the capacity
+     */
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Clears the records and sets the sequence of the next record added. This must only be invoked by the writer.
+     *
+     * @param sequence the sequence of the next record
+     */
+    void reset(final long sequence) {
+        ring = new Ring(capacity, sequence);
+    }
+
+    /**
+     * Adds the next record. This must only be invoked by the writer.
+     *
+     * @param timestamp the timestamp of the record in milliseconds since the epoch
+     * @param bytes     the raw bytes of the record
+     */
+    void add(final long timestamp, final byte[] bytes) {
+        final Ring ring = this.ring;
+        final long sequence = ring.next;
+        ring.slots.set(ring.index(sequence), new Record(sequence, timestamp, bytes));
+        ring.next = sequence + 1L;
+    }
+
+    /**
+     * Returns the sequence of the next record to be added.
+     *
+     * @return the sequence of the next record
+     */
+    long next() {
+        return ring.next;
+    }
+
+    /**
+     * Returns the sequence of the oldest record available.
+     *
+     * @return the sequence of the oldest record, if equal to {@link #next()} there are no records
+     */
+    long oldest() {
+        final Ring ring = this.ring;
+        return ring.oldest(ring.next);
+    }
+
+    /**
+     * Returns the timestamp of the oldest record available.
+     *
+     * @return the timestamp or {@link LogFiles#NO_TIMESTAMP} if there are no records or the timestamp is unknown
+     */
+    long oldestTimestamp() {
+        final Ring ring = this.ring;
+        final long next = ring.next;
+        final long oldest = ring.oldest(next);
+        if (oldest == next) {
+            return LogFiles.NO_TIMESTAMP;
+        }
+        final Record record = ring.slots.get(ring.index(oldest));
+        return record == null || record.sequence != oldest ? LogFiles.NO_TIMESTAMP : record.timestamp;
+    }
+
+    /**
+     * Passes the records starting at the sequence to the handler. If the record for a sequence is no longer available,
+     * because it was overwritten by the writer before or while the records were being read, reading stops and the
+     * sequence of the record is returned. The caller is expected to read the remaining records from the log file.
+     *
+     * @param sequence the sequence of the first record to read
+     * @param handler  the handler for the records
+     *
+     * @return {@code -1} if every record was passed to the handler or the handler stopped reading, otherwise the
+     * sequence of the first record which was not available
+     *
+     * @throws IOException if the handler throws an error
+     */
+    long read(final long sequence, final MappedLogReader.LineHandler handler) throws IOException {
+        final Ring ring = this.ring;
+        final long next = ring.next;
+        if (sequence < ring.oldest(next)) {
+            return sequence;
+        }
+        for (long s = sequence; s < next; s++) {
+            final Record record = ring.slots.get(ring.index(s));
+            if (record == null || record.sequence != s) {
+                return s;
+            }
+            if (!handler.handle(ByteBuffer.wrap(record.bytes))) {
+                break;
+            }
+        }
+        return -1L;
+    }
+
+    private static class Ring {
+        private final AtomicReferenceArray<Record> slots;
+        private final int mask;
+        private final long first;
+        private volatile long next;
+
+        private Ring(final int capacity, final long first) {
+            slots = new AtomicReferenceArray<>(capacity);
+            mask = capacity - 1;
+            this.first = first;
+            next = first;
+        }
+
+        int index(final long sequence) {
+            return (int) (sequence & mask);
+        }
+
+        long oldest(final long next) {
+            return Math.max(first, next - slots.length());
+        }
+    }
+
+    private static class Record {
+        private final long sequence;
+        private final long timestamp;
+        private final byte[] bytes;
+
+        private Record(final long sequence, final long timestamp, final byte[] bytes) {
+            this.sequence = sequence;
+            this.timestamp = timestamp;
+            this.bytes = bytes;
+        }
+    }
+}
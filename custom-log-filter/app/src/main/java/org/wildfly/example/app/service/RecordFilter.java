@@ -0,0 +1,255 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2019 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.example.app.service;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+import javax.json.Json;
+import javax.json.stream.JsonParser;
+import javax.json.stream.JsonParserFactory;
+import javax.json.stream.JsonParsingException;
+
+import org.wildfly.example.app.model.LogQuery;
+
+/**
+ * Filters raw JSON log records on the level, logger name, {@code moduleName} MDC entry and message.
+ * <p>
+ * Before a record is parsed the raw bytes are searched for each of the filtered values which can be matched
+ * without JSON escaping. Records which can not match are rejected without being parsed. Records which may match are
+ * parsed with a {@link JsonParser} which only reads the filtered properties, no JSON object is created.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+class RecordFilter {
+
+    private static final JsonParserFactory PARSER_FACTORY = Json.createParserFactory(Collections.emptyMap());
+
+    private final Set<String> levels;
+    private final String logger;
+    private final String moduleName;
+    private final String message;
+    private final Pattern messagePattern;
+    private final List<byte[]> required;
+    private final boolean empty;
+
+    private RecordFilter(final Set<String> levels, final String logger, final String moduleName, final String message,
+                         final Pattern messagePattern) {
+        this.levels = levels;
+        this.logger = logger;
+        this.moduleName = moduleName;
+        this.message = message;
+        this.messagePattern = messagePattern;
+        final List<byte[]> required = new ArrayList<>();
+        addRequired(required, logger);
+        addRequired(required, moduleName);
+        addRequired(required, message);
+        this.required = required;
+        empty = levels.isEmpty() && logger == null && moduleName == null && message == null && messagePattern == null;
+    }
+
+    /**
+     * Creates a filter from the query.
+     *
+     * @param query the query
+     *
+     * @return the filter
+     */
+    static RecordFilter of(final LogQuery query) {
+        final Set<String> levels = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        if (query.getLevel() != null) {
+            for (String level : query.getLevel().split(",")) {
+                final String value = level.trim();
+                if (!value.isEmpty()) {
+                    levels.add(value);
+                }
+            }
+        }
+        return new RecordFilter(levels, emptyToNull(query.getLogger()), emptyToNull(query.getModuleName()),
+                emptyToNull(query.getMessage()), query.getMessagePattern());
+    }
+
+    /**
+     * Indicates whether this filter allows all records.
+     *
+     * @return {@code true} if there is nothing to filter on, otherwise {@code false}
+     */
+    boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * Tests the record between the buffers position and limit. The position and limit of the buffer are not changed.
+     * A record which is not valid JSON, for example a partially written line, does not match.
+     *
+     * @param record the buffer containing the raw JSON record
+     *
+     * @return {@code true} if the record matches the filter, otherwise {@code false}
+     */
+    boolean test(final ByteBuffer record) {
+        if (empty) {
+            return true;
+        }
+        for (byte[] value : required) {
+            if (!contains(record, value)) {
+                return false;
+            }
+        }
+        String recordLevel = null;
+        String recordLogger = null;
+        String recordModuleName = null;
+        String recordMessage = null;
+        try (JsonParser parser = PARSER_FACTORY.createParser(new ByteBufferInputStream(record), StandardCharsets.UTF_8)) {
+            int depth = 0;
+            String key = null;
+            boolean inMdc = false;
+            while (parser.hasNext()) {
+                final JsonParser.Event event = parser.next();
+                switch (event) {
+                    case START_OBJECT:
+                    case START_ARRAY:
+                        inMdc = depth == 1 && "mdc".equals(key);
+                        depth++;
+                        break;
+                    case END_OBJECT:
+                    case END_ARRAY:
+                        depth--;
+                        inMdc = false;
+                        break;
+                    case KEY_NAME:
+                        key = parser.getString();
+                        break;
+                    case VALUE_STRING:
+                        if (depth == 1) {
+                            if ("level".equals(key)) {
+                                recordLevel = parser.getString();
+                            } else if ("loggerName".equals(key)) {
+                                recordLogger = parser.getString();
+                            } else if ("message".equals(key)) {
+                                recordMessage = parser.getString();
+                            }
+                        } else if (inMdc && depth == 2 && "moduleName".equals(key)) {
+                            recordModuleName = parser.getString();
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } catch (JsonParsingException e) {
+            return false;
+        }
+        if (!levels.isEmpty() && (recordLevel == null || !levels.contains(recordLevel))) {
+            return false;
+        }
+        if (logger != null && (recordLogger == null ||
+                !(recordLogger.equals(logger) || (recordLogger.startsWith(logger) && recordLogger.charAt(logger.length()) == '.')))) {
+            return false;
+        }
+        if (moduleName != null && !moduleName.equals(recordModuleName)) {
+            return false;
+        }
+        if (message != null && (recordMessage == null || !recordMessage.contains(message))) {
+            return false;
+        }
+        return messagePattern == null || (recordMessage != null && messagePattern.matcher(recordMessage).find());
+    }
+
+    private static String emptyToNull(final String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Adds the UTF-8 bytes of the value if the value is written to the JSON record without being escaped, in which
+     * case the raw record must contain the bytes for the value to match.
+     */
+    private static void addRequired(final List<byte[]> required, final String value) {
+        if (value == null) {
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c < 0x20 || c == '"' || c == '\\' || c == '/' || c > 0x7e) {
+                return;
+            }
+        }
+        required.add(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static boolean contains(final ByteBuffer buffer, final byte[] value) {
+        final int last = buffer.limit() - value.length;
+        outer:
+        for (int i = buffer.position(); i <= last; i++) {
+            for (int j = 0; j < value.length; j++) {
+                if (buffer.get(i + j) != value[j]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+        private int position;
+
+        private ByteBufferInputStream(final ByteBuffer buffer) {
+            this.buffer = buffer;
+            position = buffer.position();
+        }
+
+        @Override
+        public int read() {
+            if (position >= buffer.limit()) {
+                return -1;
+            }
+            return buffer.get(position++) & 0xFF;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) {
+            if (len == 0) {
+                return 0;
+            }
+            final int remaining = buffer.limit() - position;
+            if (remaining <= 0) {
+                return -1;
+            }
+            final int n = Math.min(len, remaining);
+            for (int i = 0; i < n; i++) {
+                b[off + i] = buffer.get(position++);
+            }
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return Math.max(0, buffer.limit() - position);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2019 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.example.app.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+
+/**
+ * Selects the records within a time range which match a {@link RecordFilter}. The timestamp is only located in the
+ * record when a time range is being filtered and records are only parsed when a filter is used.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+abstract class RecordSelector implements MappedLogReader.LineHandler {
+    private final long since;
+    private final long until;
+    private final RecordFilter filter;
+
+    /**
+     * Creates a new selector.
+     *
+     * @param since  the inclusive lower bound of the records timestamp or {@code null} for no lower bound
+     * @param until  the inclusive upper bound of the records timestamp or {@code null} for no upper bound
+     * @param filter the filter records must match or {@code null} to select all records
+     */
+    RecordSelector(final Instant since, final Instant until, final RecordFilter filter) {
+        this.since = since == null ? Long.MIN_VALUE : since.toEpochMilli();
+        this.until = until == null ? Long.MAX_VALUE : until.toEpochMilli();
+        this.filter = filter == null || filter.isEmpty() ? null : filter;
+    }
+
+    @Override
+    public boolean handle(final ByteBuffer line) throws IOException {
+        if (since != Long.MIN_VALUE || until != Long.MAX_VALUE) {
+            final long timestamp = LogFiles.parseTimestamp(line);
+            if (timestamp != LogFiles.NO_TIMESTAMP) {
+                if (timestamp < since) {
+                    return true;
+                }
+                // The records are written in order so no later record can match
+                if (timestamp > until) {
+                    return false;
+                }
+            }
+        }
+        if (filter != null && !filter.test(line)) {
+            return true;
+        }
+        return select(line);
+    }
+
+    /**
+     * Invoked for each selected record.
+     *
+     * @param line the buffer containing the record between its position and limit
+     *
+     * @return {@code true} to continue reading records, {@code false} to stop
+     *
+     * @throws IOException if an error occurs handling the record
+     */
+    abstract boolean select(ByteBuffer line) throws IOException;
+}
@@ -0,0 +1,84 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2019 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.example.app.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+
+/**
+ * Copies the raw bytes of each selected record to the output stream as the entries of a JSON array. The opening
+ * and closing brackets of the array are not written.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+class RecordWriter extends RecordSelector {
+    private static final int TRANSFER_SIZE = 8192;
+
+    private final OutputStream out;
+    private final int limit;
+    private final byte[] transfer = new byte[TRANSFER_SIZE];
+    private int skip;
+    private int written;
+
+    /**
+     * Creates a new writer.
+     *
+     * @param out    the output stream to write to
+     * @param since  the inclusive lower bound of the records timestamp or {@code null} for no lower bound
+     * @param until  the inclusive upper bound of the records timestamp or {@code null} for no upper bound
+     * @param filter the filter records must match or {@code null} to write all records
+     * @param offset the number of selected records to skip
+     * @param limit  the maximum number of records to write, a negative value for no limit
+     */
+    RecordWriter(final OutputStream out, final Instant since, final Instant until, final RecordFilter filter,
+                 final int offset, final int limit) {
+        super(since, until, filter);
+        this.out = out;
+        this.skip = offset;
+        this.limit = limit;
+    }
+
+    @Override
+    public boolean handle(final ByteBuffer line) throws IOException {
+        if (limit >= 0 && written >= limit) {
+            return false;
+        }
+        return super.handle(line);
+    }
+
+    @Override
+    boolean select(final ByteBuffer line) throws IOException {
+        if (skip > 0) {
+            skip--;
+            return true;
+        }
+        if (written++ > 0) {
+            out.write(',');
+        }
+        while (line.hasRemaining()) {
+            final int len = Math.min(transfer.length, line.remaining());
+            line.get(transfer, 0, len);
+            out.write(transfer, 0, len);
+        }
+        return limit < 0 || written < limit;
+    }
+}
@@ -0,0 +1,355 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2019 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.example.app.service;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads the records of the current log file and its rotated files in order as if they were a single file.
+ * <p>
+ * Rotated files are found by the {@code deployment.log.*} name. Files which can not contain records in the requested
+ * time range are pruned, first by a date in the file name and then by the timestamps of the first and last record.
+ * Files with a {@code .gz} suffix are decompressed as a stream.
+ * </p>
+ * <p>
+ * Up to {@value #MAX_PARALLEL_FILES} files are scanned in parallel on the executor. Each scan puts the selected
+ * records on its own bounded queue, and the queues are consumed in file order so the records are written in order.
+ * A scan waits when its queue is full, which bounds the memory used regardless of the size of the files. The queue
+ * of a scan is polled rather than waited on, so a scan which fails or stops without finishing is detected and its
+ * failure is thrown rather than waiting for records which will never be queued.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+class RotatedLogReader {
+
+    private static final int MAX_PARALLEL_FILES = 4;
+    private static final int QUEUE_SIZE = 1024;
+    private static final long OFFER_TIMEOUT = 100L;
+    private static final long POLL_TIMEOUT = 100L;
+    private static final byte[] END = new byte[0];
+    private static final String GZIP_SUFFIX = ".gz";
+    private static final int DATE_LENGTH = 10;
+
+    private final ExecutorService executor;
+    private final Instant since;
+    private final Instant until;
+    private final RecordFilter filter;
+
+    /**
+     * Creates a new reader.
+     *
+     * @param executor the executor the files are scanned on
+     * @param since    the inclusive lower bound of the records timestamp or {@code null} for no lower bound
+     * @param until    the inclusive upper bound of the records timestamp or {@code null} for no upper bound
+     * @param filter   the filter records must match
+     */
+    RotatedLogReader(final ExecutorService executor, final Instant since, final Instant until, final RecordFilter filter) {
+        this.executor = executor;
+        this.since = since;
+        this.until = until;
+        this.filter = filter;
+    }
+
+    /**
+     * Finds the rotated files of the log file.
+     *
+     * @param logFile the current log file
+     *
+     * @return the rotated files in no particular order
+     *
+     * @throws IOException if an error occurs listing the directory
+     */
+    static List<Path> findRotated(final Path logFile) throws IOException {
+        final List<Path> result = new ArrayList<>();
+        final Path dir = logFile.getParent();
+        if (dir == null || Files.notExists(dir)) {
+            return result;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, logFile.getFileName() + ".*")) {
+            for (Path path : stream) {
+                if (Files.isRegularFile(path)) {
+                    result.add(path);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Writes the selected records of the rotated files followed by the current log file.
+     *
+     * @param rotated the rotated files
+     * @param current the current log file
+     * @param index   the index of the current log file
+     * @param writer  the writer the records are written to
+     *
+     * @throws IOException if an error occurs reading a file or writing a record
+     */
+    void write(final List<Path> rotated, final Path current, final LogIndex index, final RecordWriter writer) throws IOException {
+        final List<Segment> segments = select(rotated, current, index);
+        final List<Scan> scans = new ArrayList<>(segments.size());
+        try {
+            for (int i = 0; i < segments.size(); i++) {
+                // Keep a bounded window of files being scanned ahead of the file being written
+                while (scans.size() < segments.size() && scans.size() < i + MAX_PARALLEL_FILES) {
+                    final Scan scan = new Scan(segments.get(scans.size()));
+                    scans.add(scan);
+                    scan.future = executor.submit(scan);
+                }
+                if (!consume(scans.get(i), writer)) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading the log files", e);
+        } finally {
+            scans.forEach(Scan::cancel);
+        }
+    }
+
+    private static boolean consume(final Scan scan, final RecordWriter writer) throws IOException, InterruptedException {
+        while (true) {
+            final byte[] record = scan.queue.poll(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+            if (record == END) {
+                break;
+            }
+            if (record == null) {
+                // The end is queued before the scan completes, so a completed scan with an empty queue has failed
+                if (scan.future.isDone() && scan.queue.isEmpty()) {
+                    throw scanFailed(scan);
+                }
+            } else if (!writer.handle(ByteBuffer.wrap(record))) {
+                return false;
+            }
+        }
+        if (scan.error != null) {
+            throw scanFailed(scan);
+        }
+        return true;
+    }
+
+    private static IOException scanFailed(final Scan scan) throws InterruptedException {
+        Throwable cause = scan.error;
+        if (cause == null) {
+            try {
+                scan.future.get();
+            } catch (ExecutionException e) {
+                cause = e.getCause();
+            } catch (CancellationException e) {
+                cause = e;
+            }
+        }
+        return new IOException("Failed to read the log file " + scan.segment.path, cause);
+    }
+
+    /**
+     * Orders the files by the timestamp of their first record and removes the files which can not contain records in
+     * the time range. The current log file is always last.
+     */
+    private List<Segment> select(final List<Path> rotated, final Path current, final LogIndex index) throws IOException {
+        final List<Segment> segments = new ArrayList<>();
+        for (Path path : rotated) {
+            if (isOutsideRange(path)) {
+                continue;
+            }
+            final Segment segment = Segment.of(path, null);
+            // Files without a timestamp are empty or not written by the JSON formatter
+            if (segment.first != LogFiles.NO_TIMESTAMP) {
+                segments.add(segment);
+            }
+        }
+        segments.sort(Comparator.comparingLong(segment -> segment.first));
+        if (Files.exists(current)) {
+            segments.add(Segment.of(current, index));
+        }
+        final long sinceMillis = since == null ? Long.MIN_VALUE : since.toEpochMilli();
+        final long untilMillis = until == null ? Long.MAX_VALUE : until.toEpochMilli();
+        final List<Segment> result = new ArrayList<>(segments.size());
+        for (int i = 0; i < segments.size(); i++) {
+            final Segment segment = segments.get(i);
+            // The first record of the next file bounds the last record of a file where the last record is unknown
+            final long next = i + 1 < segments.size() ? segments.get(i + 1).first : LogFiles.NO_TIMESTAMP;
+            if (segment.first != LogFiles.NO_TIMESTAMP && segment.first > untilMillis) {
+                continue;
+            }
+            if (segment.last != LogFiles.NO_TIMESTAMP && segment.last < sinceMillis) {
+                continue;
+            }
+            if (next != LogFiles.NO_TIMESTAMP && next < sinceMillis) {
+                continue;
+            }
+            result.add(segment);
+        }
+        return result;
+    }
+
+    /**
+     * Checks the date in the file name, for example {@code deployment.log.2019-10-17}, against the time range. A day
+     * either side of the date is allowed as the zone the date was written in is not known.
+     */
+    private boolean isOutsideRange(final Path path) {
+        String suffix = path.getFileName().toString();
+        suffix = suffix.substring(suffix.indexOf(".log.") + ".log.".length());
+        if (suffix.length() < DATE_LENGTH) {
+            return false;
+        }
+        final Instant start;
+        try {
+            start = LocalDate.parse(suffix.substring(0, DATE_LENGTH)).atStartOfDay(ZoneId.systemDefault()).toInstant();
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+        return (since != null && start.plus(2L, ChronoUnit.DAYS).isBefore(since)) ||
+                (until != null && start.minus(1L, ChronoUnit.DAYS).isAfter(until));
+    }
+
+    private static boolean isGzip(final Path path) {
+        return path.getFileName().toString().endsWith(GZIP_SUFFIX);
+    }
+
+    private static InputStream newGzipStream(final Path path) throws IOException {
+        return new GZIPInputStream(new BufferedInputStream(Files.newInputStream(path)));
+    }
+
+    /**
+     * A file to read with the timestamps of its first and, if known, last records.
+     */
+    private static class Segment {
+        private final Path path;
+        private final LogIndex index;
+        private final long first;
+        private final long last;
+
+        private Segment(final Path path, final LogIndex index, final long first, final long last) {
+            this.path = path;
+            this.index = index;
+            this.first = first;
+            this.last = last;
+        }
+
+        static Segment of(final Path path, final LogIndex index) throws IOException {
+            if (isGzip(path)) {
+                // The last record of a compressed file can only be found by decompressing the whole file
+                try (InputStream in = newGzipStream(path)) {
+                    return new Segment(path, index, LogFiles.readTimestamp(in), LogFiles.NO_TIMESTAMP);
+                }
+            }
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                final long first = LogFiles.readTimestamp(channel, 0L);
+                final long last = LogFiles.readTimestamp(channel, LogFiles.tailPosition(channel, 1));
+                return new Segment(path, index, first, last);
+            }
+        }
+    }
+
+    /**
+     * Scans a single file and puts the selected records on a bounded queue.
+     */
+    private class Scan extends RecordSelector implements Runnable {
+        private final Segment segment;
+        private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+        private volatile boolean cancelled;
+        private volatile Throwable error;
+        private volatile Future<?> future;
+
+        private Scan(final Segment segment) {
+            super(since, until, filter);
+            this.segment = segment;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (isGzip(segment.path)) {
+                    try (InputStream in = newGzipStream(segment.path)) {
+                        LogFiles.readLines(in, this);
+                    }
+                } else {
+                    try (FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.READ)) {
+                        long position = 0L;
+                        if (segment.index != null && since != null) {
+                            segment.index.update(segment.path, channel);
+                            position = segment.index.seek(since).getOffset();
+                        }
+                        MappedLogReader.read(channel, position, this);
+                    }
+                }
+            } catch (Throwable t) {
+                error = t;
+            } finally {
+                put(END);
+            }
+        }
+
+        @Override
+        boolean select(final ByteBuffer line) {
+            final byte[] record = new byte[line.remaining()];
+            line.get(record);
+            return put(record);
+        }
+
+        void cancel() {
+            cancelled = true;
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+
+        private boolean put(final byte[] record) {
+            try {
+                while (!cancelled) {
+                    if (queue.offer(record, OFFER_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                        return true;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }
+    }
+}
@@ -19,56 +19,182 @@
 
 package org.wildfly.example.app.service;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.Comparator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
 import javax.enterprise.concurrent.ManagedScheduledExecutorService;
+import javax.enterprise.concurrent.ManagedThreadFactory;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import org.jboss.logging.Logger;
+import org.wildfly.example.app.model.LoadProfile;
 import org.wildfly.example.app.model.LogMessage;
 
 /**
  * A singleton resource for managing logging jobs.
+ * <p>
+ * If the {@value #ASYNC_PROPERTY} system property is set to {@code true} messages are submitted to a bounded
+ * {@link LogQueue} and logged by a dedicated consumer thread rather than on the calling thread. The queue is
+ * configured with the following system properties:
+ * <ul>
+ * <li>{@value #QUEUE_SIZE_PROPERTY} the maximum number of queued messages, defaults to {@value #DEFAULT_QUEUE_SIZE}</li>
+ * <li>{@value #OVERFLOW_POLICY_PROPERTY} the {@link OverflowPolicy} used when the queue is full, defaults to
+ * {@code block}</li>
+ * <li>{@value #SAMPLE_RATE_PROPERTY} one in this many messages is queued with the {@code sample} policy once the queue
+ * is mostly full, defaults to {@value #DEFAULT_SAMPLE_RATE}</li>
+ * <li>{@value #BLOCK_TIMEOUT_PROPERTY} the maximum milliseconds to wait with the {@code block} policy before the
+ * message is dropped, defaults to {@value #DEFAULT_BLOCK_TIMEOUT}</li>
+ * </ul>
+ * </p>
+ * <p>
+ * The {@value #EXCEPTION_MODE_PROPERTY} system property defines the {@link ExceptionMode} used to create the cause of
+ * messages logged with an exception, defaults to {@code new}. The {@value #EXCEPTION_DEPTH_PROPERTY} system property
+ * is the maximum stack trace depth for the {@code truncated} mode, defaults to {@value #DEFAULT_EXCEPTION_DEPTH}.
+ * </p>
  *
  * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
  */
 @Singleton
 public class ScheduledLogger {
 
+    static final String ASYNC_PROPERTY = "org.wildfly.example.log.async";
+    static final String QUEUE_SIZE_PROPERTY = "org.wildfly.example.log.queue-size";
+    static final String OVERFLOW_POLICY_PROPERTY = "org.wildfly.example.log.overflow-policy";
+    static final String SAMPLE_RATE_PROPERTY = "org.wildfly.example.log.sample-rate";
+    static final String BLOCK_TIMEOUT_PROPERTY = "org.wildfly.example.log.block-timeout";
+    static final String EXCEPTION_MODE_PROPERTY = "org.wildfly.example.log.exception-mode";
+    static final String EXCEPTION_DEPTH_PROPERTY = "org.wildfly.example.log.exception-depth";
+    static final int DEFAULT_QUEUE_SIZE = 8192;
+    static final int DEFAULT_SAMPLE_RATE = 10;
+    static final long DEFAULT_BLOCK_TIMEOUT = 5000L;
+    static final int DEFAULT_EXCEPTION_DEPTH = 8;
+    private static final int MAX_LOAD_JOBS = 32;
+
     @Inject
     private Logger logger;
 
     @Resource
     private ManagedScheduledExecutorService executor;
 
-    private final Map<String, Future<?>> jobs = Collections.synchronizedMap(new LinkedHashMap<>());
+    @Resource
+    private ManagedThreadFactory threadFactory;
+
+    private final Map<String, LogJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, LoadJob> loadJobs = Collections.synchronizedMap(new LinkedHashMap<String, LoadJob>() {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, LoadJob> eldest) {
+            return size() > MAX_LOAD_JOBS;
+        }
+    });
     private final AtomicInteger jobCounter = new AtomicInteger();
+    private LogQueue queue;
+    private long blockTimeout;
+    private ExceptionMode exceptionMode = ExceptionMode.NEW;
+    private int exceptionDepth = DEFAULT_EXCEPTION_DEPTH;
+
+    @PostConstruct
+    public void init() {
+        exceptionMode = ExceptionMode.parse(System.getProperty(EXCEPTION_MODE_PROPERTY), ExceptionMode.NEW);
+        exceptionDepth = Math.max(0, Integer.getInteger(EXCEPTION_DEPTH_PROPERTY, DEFAULT_EXCEPTION_DEPTH));
+        if (Boolean.getBoolean(ASYNC_PROPERTY)) {
+            final OverflowPolicy policy = OverflowPolicy.parse(System.getProperty(OVERFLOW_POLICY_PROPERTY), OverflowPolicy.BLOCK);
+            queue = new LogQueue(logger, Integer.getInteger(QUEUE_SIZE_PROPERTY, DEFAULT_QUEUE_SIZE), policy,
+                    Integer.getInteger(SAMPLE_RATE_PROPERTY, DEFAULT_SAMPLE_RATE));
+            blockTimeout = Long.getLong(BLOCK_TIMEOUT_PROPERTY, DEFAULT_BLOCK_TIMEOUT);
+            queue.start(threadFactory);
+        }
+    }
 
     @PreDestroy
     public void destroy() {
         stopAll();
+        if (queue != null) {
+            queue.stop();
+        }
     }
 
     /**
-     * Logs a single message.
+     * Logs a single message. In async mode the message is queued and this may wait for space in the queue depending
+     * on the {@link OverflowPolicy}.
      *
      * @param logMessage the message to log
+     *
+     * @return {@code true} if the message was logged or queued, {@code false} if it was dropped
      */
-    public void log(final LogMessage logMessage) {
-        final Throwable cause = logMessage.isAddException() ? new RuntimeException("This is an example cause.") : null;
-        final Logger.Level level = parseLevel(logMessage.getLevel());
-        logger.log(level, logMessage.getMessage(), cause);
+    public boolean log(final LogMessage logMessage) {
+        final LogQueue.Entry entry = toEntry(logMessage);
+        if (queue == null) {
+            entry.log(logger);
+            return true;
+        }
+        if (queue.offer(entry)) {
+            return true;
+        }
+        if (queue.getPolicy() != OverflowPolicy.BLOCK) {
+            return false;
+        }
+        try {
+            return queue.put(entry, blockTimeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Submits a single message without waiting on the calling thread. The returned stage completes once the message
+     * has been logged or queued. If the queue is full and the {@link OverflowPolicy#BLOCK} policy is used the wait
+     * for space in the queue happens on the executor.
+     *
+     * @param logMessage the message to log
+     *
+     * @return a stage which completes with {@code true} if the message was logged or queued or {@code false} if it
+     * was dropped
+     */
+    public CompletionStage<Boolean> submit(final LogMessage logMessage) {
+        if (queue == null) {
+            return CompletableFuture.completedFuture(log(logMessage));
+        }
+        final LogQueue.Entry entry = toEntry(logMessage);
+        if (queue.offer(entry)) {
+            return CompletableFuture.completedFuture(Boolean.TRUE);
+        }
+        if (queue.getPolicy() != OverflowPolicy.BLOCK) {
+            return CompletableFuture.completedFuture(Boolean.FALSE);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return queue.put(entry, blockTimeout);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Returns the queue used in async mode.
+     *
+     * @return the queue or {@code null} if messages are logged on the calling thread
+     */
+    public LogQueue getQueue() {
+        return queue;
     }
 
     /**
@@ -88,13 +214,63 @@ public class ScheduledLogger {
      * @return the job id
      */
     public String start(final long seconds) {
-        final String jobId = generateJobId();
+        final LogJob job = newJob();
+        final String jobId = job.getId();
         final AtomicInteger counter = new AtomicInteger();
-        final Runnable r = () -> logger.infof("Log number %d from job id %s", counter.incrementAndGet(), jobId);
-        jobs.put(jobId, executor.scheduleAtFixedRate(r, 0, seconds, TimeUnit.SECONDS));
+        final long period = TimeUnit.SECONDS.toNanos(seconds);
+        final long first = System.nanoTime();
+        final Runnable r = () -> {
+            final int count = counter.incrementAndGet();
+            final long start = System.nanoTime();
+            try {
+                logger.infof("Log number %d from job id %s", count, jobId);
+                job.record(first + (count - 1) * period, start, System.nanoTime());
+            } catch (RuntimeException e) {
+                // Record the error rather than throwing it which would suppress any further executions
+                job.recordError(e);
+            }
+        };
+        job.setFuture(executor.scheduleAtFixedRate(r, 0, seconds, TimeUnit.SECONDS));
+        jobs.put(jobId, job);
+        return jobId;
+    }
+
+    /**
+     * Starts a load generation job which logs messages at the rate described by the profile on a number of dedicated
+     * threads. The job stops itself once the duration has elapsed and can be stopped earlier like any other job.
+     *
+     * @param profile the load to generate
+     *
+     * @return the job id
+     */
+    public String startLoad(final LoadProfile profile) {
+        final LogJob job = newJob();
+        final String jobId = job.getId();
+        final LoadJob loadJob = new LoadJob(job, logger, threadFactory, this::createCause, profile);
+        final FutureTask<Void> task = new FutureTask<Void>(loadJob) {
+            @Override
+            protected void done() {
+                jobs.remove(jobId, job);
+            }
+        };
+        job.setFuture(task);
+        loadJobs.put(jobId, loadJob);
+        jobs.put(jobId, job);
+        threadFactory.newThread(task).start();
         return jobId;
     }
 
+    /**
+     * Returns a running or recently finished load generation job.
+     *
+     * @param id the job id
+     *
+     * @return the job or {@code null} if there is no load generation job with the id
+     */
+    public LoadJob getLoadJob(final String id) {
+        return loadJobs.get(id);
+    }
+
     /**
      * Stops a job.
      *
@@ -105,54 +281,94 @@ public class ScheduledLogger {
      * @see Future#cancel(boolean)
      */
     public boolean stop(final String id) {
-        final Future<?> future = jobs.remove(id);
-        if (future == null) {
+        final LogJob job = jobs.remove(id);
+        if (job == null) {
             return false;
         }
-        return future.cancel(true);
+        return job.getFuture().cancel(true);
     }
 
     /**
-     * Stops all jobs.
+     * Stops the jobs with the given id's. Id's of jobs which are not running are ignored.
+     *
+     * @param ids the job id's
      *
      * @return a map of the job id's that were stopped and boolean of whether or not the job was successfully cancelled
      *
      * @see Future#cancel(boolean)
      */
-    public Map<String, Boolean> stopAll() {
-        final Map<String, Boolean> stoppedJobs = new HashMap<>();
-        synchronized (jobs) {
-            final Iterator<Map.Entry<String, Future<?>>> iter = jobs.entrySet().iterator();
-            while (iter.hasNext()) {
-                final Map.Entry<String, Future<?>> entry = iter.next();
-                stoppedJobs.put(entry.getKey(), entry.getValue().cancel(true));
-                iter.remove();
+    public Map<String, Boolean> stop(final Collection<String> ids) {
+        final Map<String, Boolean> stoppedJobs = new LinkedHashMap<>();
+        for (String id : ids) {
+            // Only the caller which removes the job cancels it, no lock is held while cancelling
+            final LogJob job = jobs.remove(id);
+            if (job != null) {
+                stoppedJobs.put(id, job.getFuture().cancel(true));
             }
         }
         return stoppedJobs;
     }
 
     /**
-     * Returns a collection of the running jobs.
+     * Stops the jobs whose id starts with the prefix.
+     *
+     * @param prefix the prefix of the job id's to stop
+     *
+     * @return a map of the job id's that were stopped and boolean of whether or not the job was successfully cancelled
+     *
+     * @see Future#cancel(boolean)
+     */
+    public Map<String, Boolean> stopByPrefix(final String prefix) {
+        return stop(runningJobs().stream()
+                .filter(id -> id.startsWith(prefix))
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Stops all jobs.
+     *
+     * @return a map of the job id's that were stopped and boolean of whether or not the job was successfully cancelled
+     *
+     * @see Future#cancel(boolean)
+     */
+    public Map<String, Boolean> stopAll() {
+        return stop(runningJobs());
+    }
+
+    /**
+     * Returns a running job.
+     *
+     * @param id the job id
+     *
+     * @return the job or {@code null} if there is no running job with the id
+     */
+    public LogJob getJob(final String id) {
+        return jobs.get(id);
+    }
+
+    /**
+     * Returns a collection of the running jobs in the order they were started.
      *
      * @return a collection of the running jobs
      */
-    public Collection<String> runningJobs() {
-        synchronized (jobs) {
-            return new ArrayList<>(jobs.keySet());
-        }
+    public List<String> runningJobs() {
+        return jobs.values().stream()
+                .sorted(Comparator.comparingLong(LogJob::getSequence))
+                .map(LogJob::getId)
+                .collect(Collectors.toList());
     }
 
-    private String generateJobId() {
-        return "log-job-" + jobCounter.incrementAndGet();
+    private LogJob newJob() {
+        final int sequence = jobCounter.incrementAndGet();
+        return new LogJob("log-job-" + sequence, sequence);
     }
 
-    private static Logger.Level parseLevel(final String level) {
-        for (Logger.Level l : Logger.Level.values()) {
-            if (l.name().equalsIgnoreCase(level)) {
-                return l;
-            }
-        }
-        return Logger.Level.INFO;
+    private LogQueue.Entry toEntry(final LogMessage logMessage) {
+        final Throwable cause = logMessage.isAddException() ? createCause() : null;
+        return new LogQueue.Entry(logMessage.resolvedLevel(), logMessage.getMessage(), cause);
+    }
+
+    private Throwable createCause() {
+        return exceptionMode.createCause(exceptionDepth);
     }
 }
@@ -116,17 +116,17 @@ $(document).ready(function () {
     } else {
         localStorage.autoRefresh = autoRefresh;
     }
-    let intvId;
+    let eventSource;
     if (autoRefresh) {
-        intvId = scheduleAutoRefresh();
+        eventSource = subscribeToLogs();
     }
     $("#autoRefresh").click(function () {
         if (this.checked) {
-            intvId = scheduleAutoRefresh();
+            eventSource = subscribeToLogs();
             localStorage.autoRefresh = autoRefresh = true;
         } else {
-            if (intvId) {
-                clearInterval(intvId);
+            if (eventSource) {
+                eventSource.close();
             }
             localStorage.autoRefresh = autoRefresh = false;
         }
@@ -193,11 +193,13 @@ function refreshLogs() {
     });
 }
 
-function scheduleAutoRefresh() {
+function subscribeToLogs() {
     refreshLogs();
-    return setInterval(function () {
-        refreshLogs()
-    }, 5000);
+    let source = new EventSource("rest/log/stream");
+    source.addEventListener("log", function (e) {
+        $("#logs").bootstrapTable("prepend", JSON.parse(e.data));
+    });
+    return source;
 }
 
 // noinspection JSUnusedGlobalSymbols
@@ -0,0 +1,156 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2019 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.example.filter.benchmark;
+
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import org.jboss.example.filter.ClassLoaderFilter;
+import org.jboss.modules.ModuleFinder;
+import org.jboss.modules.ModuleLoadException;
+import org.jboss.modules.ModuleLoader;
+import org.jboss.modules.ModuleSpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of {@link ClassLoaderFilter#isLoggable(LogRecord)}. Run with {@code -prof gc} to include
+ * the allocation rate and {@code -t} to change the number of threads for the {@link #isLoggable(ThreadState)}
+ * benchmark.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClassLoaderFilterBenchmark {
+
+    private static final String LOGGER_NAME = "org.wildfly.example.app.service.ScheduledLogger";
+    private static final String MODULE_NAME = "deployment.app.war";
+
+    /**
+     * The pattern for the filter, an empty value means no pattern is set.
+     */
+    @Param({"", ".*deployment\\.app.*"})
+    public String pattern;
+
+    /**
+     * The number of logger names to add to the filter.
+     */
+    @Param({"0", "1000"})
+    public int loggerNames;
+
+    /**
+     * The type of class loader set as the threads context class loader.
+     */
+    @Param({"module", "plain"})
+    public String classLoader;
+
+    private ClassLoaderFilter filter;
+    private ClassLoader tccl;
+
+    @Setup
+    public void setup() throws ModuleLoadException {
+        filter = new ClassLoaderFilter();
+        if (!pattern.isEmpty()) {
+            filter.setPattern(pattern);
+        }
+        if (loggerNames > 0) {
+            final StringJoiner names = new StringJoiner(",");
+            for (int i = 1; i < loggerNames; i++) {
+                names.add("org.jboss.example.logger" + i);
+            }
+            names.add(LOGGER_NAME);
+            filter.setLoggerNames(names.toString());
+        }
+        if ("module".equals(classLoader)) {
+            tccl = createModuleClassLoader();
+        } else {
+            tccl = new ClassLoader(ClassLoaderFilterBenchmark.class.getClassLoader()) {
+                @Override
+                public String toString() {
+                    return MODULE_NAME;
+                }
+            };
+        }
+    }
+
+    @Benchmark
+    public boolean isLoggable(final ThreadState state) {
+        return filter.isLoggable(state.record);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean isLoggableContended(final ThreadState state) {
+        return filter.isLoggable(state.record);
+    }
+
+    /**
+     * Sets the context class loader on each benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private LogRecord record;
+        private ClassLoader previous;
+
+        @Setup
+        public void setup(final ClassLoaderFilterBenchmark benchmark) {
+            record = new LogRecord(Level.INFO, "Benchmark message");
+            record.setLoggerName(LOGGER_NAME);
+            final Thread thread = Thread.currentThread();
+            previous = thread.getContextClassLoader();
+            thread.setContextClassLoader(benchmark.tccl);
+        }
+
+        @TearDown
+        public void tearDown() {
+            Thread.currentThread().setContextClassLoader(previous);
+        }
+    }
+
+    private static ClassLoader createModuleClassLoader() throws ModuleLoadException {
+        final ModuleLoader moduleLoader = new ModuleLoader(new ModuleFinder[] {
+                new ModuleFinder() {
+                    @Override
+                    public ModuleSpec findModule(final String name, final ModuleLoader delegateLoader) {
+                        return ModuleSpec.build(name).create();
+                    }
+                }
+        });
+        return moduleLoader.loadModule(MODULE_NAME).getClassLoader();
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2019 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.example.filter;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+import org.jboss.modules.ModuleClassLoader;
+
+/**
+ * A cache of the module name and pattern match result for a class loader. Class loaders are compared by identity and
+ * weakly referenced so the cache does not prevent a deployment's class loader from being collected.
+ * <p>
+ * A cache is bound to a single pattern. When the pattern changes a new cache should be created rather than clearing
+ * this one, which avoids racing with threads still computing results for the previous pattern.
+ * </p>
+ * <p>
+ * A lookup does not allocate. The key for the last class loader looked up is kept so repeated lookups for the same
+ * class loader do not access the map, other lookups use a reusable key for the current thread.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+class ClassLoaderCache {
+
+    private final Pattern pattern;
+    private static final ThreadLocal<LookupKey> LOOKUP_KEY = ThreadLocal.withInitial(LookupKey::new);
+
+    private final ConcurrentMap<Object, WeakKey> entries = new ConcurrentHashMap<>();
+    private final ReferenceQueue<ClassLoader> queue = new ReferenceQueue<>();
+    private volatile WeakKey last;
+
+    /**
+     * Creates a new cache.
+     *
+     * @param pattern the pattern to match module names against or {@code null} to match all module names
+     */
+    ClassLoaderCache(final Pattern pattern) {
+        this.pattern = pattern;
+    }
+
+    /**
+     * Returns the pattern this cache was created for.
+     *
+     * @return the pattern or {@code null} if all module names match
+     */
+    Pattern getPattern() {
+        return pattern;
+    }
+
+    /**
+     * Returns the cached entry for the class loader, resolving the module name and matching it against the pattern
+     * if this is the first time the class loader has been seen.
+     *
+     * @param cl the class loader to resolve the entry for
+     *
+     * @return the entry for the class loader
+     */
+    Entry get(final ClassLoader cl) {
+        final WeakKey last = this.last;
+        if (last != null && last.get() == cl) {
+            return last.entry;
+        }
+        final LookupKey lookupKey = LOOKUP_KEY.get();
+        lookupKey.cl = cl;
+        final WeakKey key;
+        try {
+            key = entries.get(lookupKey);
+        } finally {
+            // Do not hold a reference to the class loader
+            lookupKey.cl = null;
+        }
+        if (key != null) {
+            this.last = key;
+            return key.entry;
+        }
+        expungeStaleEntries();
+        final String moduleName = resolveName(cl);
+        final Entry entry = new Entry(moduleName, pattern == null || pattern.matcher(moduleName).matches());
+        final WeakKey newKey = new WeakKey(cl, entry, queue);
+        final WeakKey appearing = entries.putIfAbsent(newKey, newKey);
+        final WeakKey result = appearing == null ? newKey : appearing;
+        this.last = result;
+        return result.entry;
+    }
+
+    private void expungeStaleEntries() {
+        Reference<? extends ClassLoader> ref;
+        while ((ref = queue.poll()) != null) {
+            entries.remove(ref);
+        }
+    }
+
+    private static String resolveName(final ClassLoader cl) {
+        if (cl instanceof ModuleClassLoader) {
+            return ((ModuleClassLoader) cl).getName();
+        }
+        return cl.toString();
+    }
+
+    /**
+     * The resolved module name and whether or not it matched the pattern.
+     */
+    static class Entry {
+        private final String moduleName;
+        private final boolean loggable;
+
+        private Entry(final String moduleName, final boolean loggable) {
+            this.moduleName = moduleName;
+            this.loggable = loggable;
+        }
+
+        /**
+         * Returns the name of the module or the {@link ClassLoader#toString()} if the class loader was not a
+         * {@link ModuleClassLoader}.
+         *
+         * @return the module name
+         */
+        String getModuleName() {
+            return moduleName;
+        }
+
+        /**
+         * Indicates whether the module name matched the pattern.
+         *
+         * @return {@code true} if the module name matched, otherwise {@code false}
+         */
+        boolean isLoggable() {
+            return loggable;
+        }
+    }
+
+    private static class WeakKey extends WeakReference<ClassLoader> {
+        private final int hash;
+        private final Entry entry;
+
+        WeakKey(final ClassLoader cl, final Entry entry, final ReferenceQueue<ClassLoader> queue) {
+            super(cl, queue);
+            hash = System.identityHashCode(cl);
+            this.entry = entry;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            final ClassLoader cl = get();
+            if (cl == null) {
+                return false;
+            }
+            if (obj instanceof WeakKey) {
+                return cl == ((WeakKey) obj).get();
+            }
+            return obj instanceof LookupKey && cl == ((LookupKey) obj).cl;
+        }
+    }
+
+    /**
+     * A mutable key only used to look up an entry, it is never added to the map.
+     */
+    private static class LookupKey {
+        private ClassLoader cl;
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(cl);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (obj instanceof WeakKey) {
+                return cl == ((WeakKey) obj).get();
+            }
+            return obj instanceof LookupKey && cl == ((LookupKey) obj).cl;
+        }
+    }
+}
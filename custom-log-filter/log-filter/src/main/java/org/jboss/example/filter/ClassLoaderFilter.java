@@ -37,7 +37,12 @@ import org.jboss.modules.ModuleClassLoader;
  * module matches the {@linkplain #getPattern() pattern} then the message will be logged.
  * <p>
  * Optionally you can add {@linkplain #setLoggerNames(String) logger names} in a comma delimited string to only allow
- * specific logger names to be logged.
+ * specific logger names to be logged, or {@linkplain #setLoggerCategories(String) logger categories} to allow a logger
+ * and all of its child loggers.
+ * </p>
+ * <p>
+ * The module name and the result of matching it against the pattern are cached for each class loader, so the pattern
+ * is only evaluated the first time a class loader is seen.
  * </p>
  *
  * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
@@ -45,54 +50,107 @@ import org.jboss.modules.ModuleClassLoader;
 @SuppressWarnings("unused")
 public class ClassLoaderFilter implements Filter {
 
-    private volatile Pattern pattern;
-    private final Set<String> loggerNames = Collections.synchronizedSet(new HashSet<>());
+    private static final String MDC_KEY = "moduleName";
+
+    private volatile ClassLoaderCache cache = new ClassLoaderCache(null);
+    private volatile Set<String> loggerNames = Collections.emptySet();
+    private volatile LoggerCategories loggerCategories = LoggerCategories.EMPTY;
+    private volatile boolean skipUnchangedMdc;
 
     @Override
     public boolean isLoggable(final LogRecord record) {
-        if (!loggerNames.isEmpty() && !loggerNames.contains(record.getLoggerName())) {
+        if (!isLoggerAllowed(record.getLoggerName())) {
             return false;
         }
-        final ClassLoader cl = getClassLoader();
-        String value;
-        if (cl instanceof ModuleClassLoader) {
-            value = ((ModuleClassLoader) cl).getName();
-        } else {
-            value = cl.toString();
-        }
-        if (pattern == null || pattern.matcher(value).matches()) {
-            MDC.put("moduleName", value);
+        final ClassLoaderCache.Entry entry = cache.get(getClassLoader());
+        if (entry.isLoggable()) {
+            final String moduleName = entry.getModuleName();
+            if (!skipUnchangedMdc || !moduleName.equals(MDC.get(MDC_KEY))) {
+                MDC.put(MDC_KEY, moduleName);
+            }
             return true;
         }
-        MDC.remove("moduleName");
+        if (!skipUnchangedMdc || MDC.get(MDC_KEY) != null) {
+            MDC.remove(MDC_KEY);
+        }
         return false;
     }
 
     /**
      * Returns the collection of logger names or an empty collection.
      *
-     * @return the logger names or an empty collection
+     * @return an unmodifiable set of the logger names or an empty collection
      */
     public Set<String> getLoggerNames() {
-        synchronized (loggerNames) {
-            return new HashSet<>(loggerNames);
-        }
+        return loggerNames;
     }
 
     /**
      * Sets which logger names are allowed to pass the filter. This is a comma delimited string. If {@code null} an
      * empty list is used and all logger will be checked.
+     * <p>
+     * Any previously set logger names are replaced.
+     * </p>
      *
      * @param loggerNames a comma delimited set of logger names or {@code null} to allow for all logger names
      */
     public void setLoggerNames(final String loggerNames) {
         if (loggerNames == null) {
-            this.loggerNames.clear();
+            this.loggerNames = Collections.emptySet();
         } else {
-            Collections.addAll(this.loggerNames, loggerNames.split(","));
+            final Set<String> names = new HashSet<>();
+            Collections.addAll(names, loggerNames.split(","));
+            this.loggerNames = Collections.unmodifiableSet(names);
         }
     }
 
+    /**
+     * Returns the logger categories or an empty collection.
+     *
+     * @return an unmodifiable set of the logger categories or an empty collection
+     */
+    public Set<String> getLoggerCategories() {
+        return loggerCategories.getNames();
+    }
+
+    /**
+     * Sets which logger categories are allowed to pass the filter. This is a comma delimited string. A category allows
+     * the logger with the same name and any of its child loggers, e.g. {@code com.acme.billing} allows
+     * {@code com.acme.billing.Invoice}. If {@code null} no categories are used.
+     * <p>
+     * If both logger names and categories are set, a logger passes if it matches either one. Any previously set
+     * categories are replaced.
+     * </p>
+     *
+     * @param loggerCategories a comma delimited set of logger categories or {@code null} to clear the categories
+     */
+    public void setLoggerCategories(final String loggerCategories) {
+        this.loggerCategories = LoggerCategories.of(loggerCategories);
+    }
+
+    /**
+     * Indicates whether the {@code moduleName} MDC entry is only written when its value changes.
+     *
+     * @return {@code true} if unchanged MDC values are not written again, otherwise {@code false}
+     */
+    public boolean isSkipUnchangedMdc() {
+        return skipUnchangedMdc;
+    }
+
+    /**
+     * Sets whether the {@code moduleName} MDC entry should only be written when its value changes. When enabled the
+     * current value on the thread is read first and the entry is only put or removed if it differs. This avoids
+     * writing the thread's MDC map on every log record when a thread keeps logging from the same module.
+     * <p>
+     * The default is {@code false} which always writes the MDC entry.
+     * </p>
+     *
+     * @param skipUnchangedMdc {@code true} to skip writing unchanged MDC values
+     */
+    public void setSkipUnchangedMdc(final boolean skipUnchangedMdc) {
+        this.skipUnchangedMdc = skipUnchangedMdc;
+    }
+
     /**
      * Returns the pattern used to check the against the module name, assuming the class loader is a
      * {@link ModuleClassLoader}. Otherwise the {@link ClassLoader#toString()} is checked.
@@ -100,16 +158,26 @@ public class ClassLoaderFilter implements Filter {
      * @return the pattern used for matching
      */
     public Pattern getPattern() {
-        return pattern;
+        return cache.getPattern();
     }
 
     /**
-     * Sets the pattern used for checking the class loader.
+     * Sets the pattern used for checking the class loader. Any previously cached results for class loaders are
+     * discarded.
      *
      * @param pattern the pattern
      */
     public void setPattern(final String pattern) {
-        this.pattern = Pattern.compile(Objects.requireNonNull(pattern, "The pattern cannot be null."));
+        cache = new ClassLoaderCache(Pattern.compile(Objects.requireNonNull(pattern, "The pattern cannot be null.")));
+    }
+
+    private boolean isLoggerAllowed(final String loggerName) {
+        final Set<String> loggerNames = this.loggerNames;
+        final LoggerCategories loggerCategories = this.loggerCategories;
+        if (loggerNames.isEmpty() && loggerCategories.isEmpty()) {
+            return true;
+        }
+        return loggerNames.contains(loggerName) || loggerCategories.matches(loggerName);
     }
 
     private static ClassLoader getClassLoader() {
@@ -0,0 +1,201 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2019 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.example.filter;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable set of logger categories. A category matches a logger with the same name and any logger which is a
+ * child of the category. For example the category {@code com.acme.billing} matches the loggers
+ * {@code com.acme.billing} and {@code com.acme.billing.Invoice}, but not {@code com.acme.billingx}.
+ * <p>
+ * The categories are stored in a trie keyed by the segments of the category name. Matching a logger name only walks
+ * the segments of the logger name and is independent of the number of categories. The segments of the logger name are
+ * compared in place so matching does not allocate.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+class LoggerCategories {
+
+    static final LoggerCategories EMPTY = new LoggerCategories(Collections.emptySet());
+
+    private final Set<String> categories;
+    private final Node root;
+
+    private LoggerCategories(final Set<String> categories) {
+        this.categories = categories;
+        root = new Node();
+        for (String category : categories) {
+            Node current = root;
+            int start = 0;
+            int end;
+            while ((end = category.indexOf('.', start)) != -1) {
+                current = current.child(category.substring(start, end));
+                start = end + 1;
+            }
+            current.child(category.substring(start)).terminal = true;
+        }
+        root.freeze();
+    }
+
+    /**
+     * Creates the categories from a comma delimited string.
+     *
+     * @param categories a comma delimited string of categories or {@code null} for no categories
+     *
+     * @return the categories
+     */
+    static LoggerCategories of(final String categories) {
+        if (categories == null) {
+            return EMPTY;
+        }
+        final Set<String> names = new LinkedHashSet<>();
+        for (String category : categories.split(",")) {
+            final String name = category.trim();
+            if (!name.isEmpty()) {
+                names.add(name);
+            }
+        }
+        return names.isEmpty() ? EMPTY : new LoggerCategories(Collections.unmodifiableSet(names));
+    }
+
+    /**
+     * Checks whether there are any categories.
+     *
+     * @return {@code true} if there are no categories, otherwise {@code false}
+     */
+    boolean isEmpty() {
+        return categories.isEmpty();
+    }
+
+    /**
+     * Returns the names of the categories.
+     *
+     * @return an unmodifiable set of the category names
+     */
+    Set<String> getNames() {
+        return categories;
+    }
+
+    /**
+     * Checks whether the logger name is equal to or a child of one of the categories.
+     *
+     * @param loggerName the logger name to check
+     *
+     * @return {@code true} if the logger name is within one of the categories, otherwise {@code false}
+     */
+    boolean matches(final String loggerName) {
+        if (loggerName == null) {
+            return false;
+        }
+        Node current = root;
+        int start = 0;
+        int end;
+        while ((end = loggerName.indexOf('.', start)) != -1) {
+            current = current.find(loggerName, start, end);
+            if (current == null) {
+                return false;
+            }
+            if (current.terminal) {
+                return true;
+            }
+            start = end + 1;
+        }
+        current = current.find(loggerName, start, loggerName.length());
+        return current != null && current.terminal;
+    }
+
+    private static int hash(final String s, final int start, final int end) {
+        // Same as String.hashCode() for the region, spread so the low bits can be used as the index
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + s.charAt(i);
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static class Node {
+        private Map<String, Node> children = new HashMap<>();
+        private String[] keys;
+        private Node[] nodes;
+        private boolean terminal;
+
+        Node child(final String segment) {
+            return children.computeIfAbsent(segment, s -> new Node());
+        }
+
+        /**
+         * Converts the children into an open addressing table which can be probed with a region of a string.
+         */
+        void freeze() {
+            if (!children.isEmpty()) {
+                int size = 2;
+                while (size < children.size() * 2) {
+                    size <<= 1;
+                }
+                keys = new String[size];
+                nodes = new Node[size];
+                final int mask = size - 1;
+                for (Map.Entry<String, Node> entry : children.entrySet()) {
+                    final String key = entry.getKey();
+                    int index = hash(key, 0, key.length()) & mask;
+                    while (keys[index] != null) {
+                        index = (index + 1) & mask;
+                    }
+                    keys[index] = key;
+                    nodes[index] = entry.getValue();
+                    entry.getValue().freeze();
+                }
+            }
+            children = null;
+        }
+
+        /**
+         * Finds the child for the segment {@code name[start, end)}.
+         *
+         * @param name  the name containing the segment
+         * @param start the index of the first character of the segment
+         * @param end   the index after the last character of the segment
+         *
+         * @return the child node or {@code null} if there is no child for the segment
+         */
+        Node find(final String name, final int start, final int end) {
+            if (keys == null) {
+                return null;
+            }
+            final int len = end - start;
+            final int mask = keys.length - 1;
+            int index = hash(name, start, end) & mask;
+            String key;
+            while ((key = keys[index]) != null) {
+                if (key.length() == len && name.regionMatches(start, key, 0, len)) {
+                    return nodes[index];
+                }
+                index = (index + 1) & mask;
+            }
+            return null;
+        }
+    }
+}
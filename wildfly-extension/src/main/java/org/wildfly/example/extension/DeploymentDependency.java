@@ -30,13 +30,18 @@ public class DeploymentDependency {
     private final boolean include;
     private final boolean importServices;
     private final boolean optional;
+    private final String deployment;
+    private final boolean preload;
 
     protected DeploymentDependency(final ModuleIdentifier identifier, final boolean include,
-                                   final boolean importServices, final boolean optional) {
+                                   final boolean importServices, final boolean optional, final String deployment,
+                                   final boolean preload) {
         this.identifier = identifier;
         this.include = include;
         this.importServices = importServices;
         this.optional = optional;
+        this.deployment = deployment;
+        this.preload = preload;
     }
 
     public ModuleIdentifier getIdentifier() {
@@ -54,4 +59,23 @@ public class DeploymentDependency {
     public boolean isOptional() {
         return optional;
     }
+
+    /**
+     * Returns the selector the deployment name must match for the dependency to be applied.
+     *
+     * @return the deployment name selector or {@code null} if the dependency applies to all deployments
+     */
+    public String getDeployment() {
+        return deployment;
+    }
+
+    /**
+     * Indicates whether the module should be loaded and linked when the subsystem starts rather than by the first
+     * deployment it is linked to.
+     *
+     * @return {@code true} if the module should be preloaded
+     */
+    public boolean isPreload() {
+        return preload;
+    }
 }
@@ -0,0 +1,105 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2015 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.example.extension;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.as.server.deployment.module.ModuleDependency;
+import org.jboss.modules.ModuleIdentifier;
+
+/**
+ * The runtime metrics of the deployment processor.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class DeploymentModuleMetrics {
+
+    private final AtomicLong deploymentsProcessed = new AtomicLong();
+    private final AtomicLong processingTime = new AtomicLong();
+    private final AtomicLong maxProcessingTime = new AtomicLong();
+    private final ConcurrentMap<ModuleIdentifier, AtomicLong> inclusions = new ConcurrentHashMap<>();
+
+    /**
+     * Records a processed deployment.
+     *
+     * @param nanos        the time spent processing the deployment in nanoseconds
+     * @param dependencies the module dependencies added to the deployment
+     */
+    public void recordDeployment(final long nanos, final Collection<ModuleDependency> dependencies) {
+        deploymentsProcessed.incrementAndGet();
+        processingTime.addAndGet(nanos);
+        long max = maxProcessingTime.get();
+        while (nanos > max && !maxProcessingTime.compareAndSet(max, nanos)) {
+            max = maxProcessingTime.get();
+        }
+        for (ModuleDependency dependency : dependencies) {
+            AtomicLong count = inclusions.get(dependency.getIdentifier());
+            if (count == null) {
+                final AtomicLong existing = inclusions.putIfAbsent(dependency.getIdentifier(), count = new AtomicLong());
+                if (existing != null) {
+                    count = existing;
+                }
+            }
+            count.incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the number of deployments and subdeployments processed.
+     *
+     * @return the number of deployments processed
+     */
+    public long getDeploymentsProcessed() {
+        return deploymentsProcessed.get();
+    }
+
+    /**
+     * Returns the cumulative time spent processing deployments.
+     *
+     * @return the cumulative time in nanoseconds
+     */
+    public long getProcessingTime() {
+        return processingTime.get();
+    }
+
+    /**
+     * Returns the longest time spent processing a single deployment.
+     *
+     * @return the maximum time in nanoseconds
+     */
+    public long getMaxProcessingTime() {
+        return maxProcessingTime.get();
+    }
+
+    /**
+     * Returns the number of deployments the module has been included on.
+     *
+     * @param moduleIdentifier the module identifier
+     *
+     * @return the number of deployments the module was included on
+     */
+    public long getInclusionCount(final ModuleIdentifier moduleIdentifier) {
+        final AtomicLong count = inclusions.get(moduleIdentifier);
+        return count == null ? 0L : count.get();
+    }
+}
@@ -23,21 +23,32 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 
 import org.jboss.as.controller.AbstractAddStepHandler;
+import org.jboss.as.controller.AbstractWriteAttributeHandler;
 import org.jboss.as.controller.AttributeDefinition;
+import org.jboss.as.controller.ModelOnlyWriteAttributeHandler;
 import org.jboss.as.controller.OperationContext;
 import org.jboss.as.controller.OperationFailedException;
+import org.jboss.as.controller.OperationStepHandler;
 import org.jboss.as.controller.PersistentResourceDefinition;
 import org.jboss.as.controller.PersistentResourceXMLDescription;
 import org.jboss.as.controller.PersistentResourceXMLDescription.PersistentResourceXMLBuilder;
 import org.jboss.as.controller.ReloadRequiredRemoveStepHandler;
+import org.jboss.as.controller.ReloadRequiredWriteAttributeHandler;
+import org.jboss.as.controller.SimpleAttributeDefinitionBuilder;
+import org.jboss.as.controller.client.helpers.MeasurementUnit;
+import org.jboss.as.controller.descriptions.ModelDescriptionConstants;
 import org.jboss.as.controller.operations.common.GenericSubsystemDescribeHandler;
+import org.jboss.as.controller.operations.validation.EnumValidator;
 import org.jboss.as.controller.registry.ManagementResourceRegistration;
 import org.jboss.as.server.AbstractDeploymentChainStep;
 import org.jboss.as.server.DeploymentProcessorTarget;
 import org.jboss.as.server.deployment.Phase;
 import org.jboss.dmr.ModelNode;
+import org.jboss.dmr.ModelType;
 import org.jboss.msc.service.ServiceController;
 import org.jboss.msc.service.ServiceTarget;
 import org.wildfly.example.extension.deployment.DeploymentModuleProcessor;
@@ -47,9 +58,56 @@ import org.wildfly.example.extension.deployment.DeploymentModuleProcessor;
  */
 public class DeploymentModuleResource extends PersistentResourceDefinition {
 
+    /**
+     * Whether changes to includes and excludes are applied to the running deployments, by redeploying the affected
+     * deployments, rather than requiring a reload. The value is read when an include or exclude is changed so writing
+     * the attribute does not require a reload.
+     */
+    static final AttributeDefinition RUNTIME_UPDATES = SimpleAttributeDefinitionBuilder.create("runtime-updates", ModelType.BOOLEAN, true)
+            .setAllowExpression(true)
+            .setDefaultValue(new ModelNode(false))
+            .build();
+
+    /**
+     * How the modules included on or excluded from each deployment are logged.
+     */
+    static final AttributeDefinition LOGGING_MODE = SimpleAttributeDefinitionBuilder.create("logging-mode", ModelType.STRING, true)
+            .setAllowExpression(true)
+            .setDefaultValue(new ModelNode(LoggingMode.INFO.name()))
+            .setValidator(new EnumValidator<>(LoggingMode.class, true, true))
+            .build();
+
+    /**
+     * Whether included modules with {@code preload} enabled are loaded on a separate thread.
+     */
+    static final AttributeDefinition PRELOAD_ASYNC = SimpleAttributeDefinitionBuilder.create("preload-async", ModelType.BOOLEAN, true)
+            .setAllowExpression(true)
+            .setDefaultValue(new ModelNode(false))
+            .setRestartAllServices()
+            .build();
+
+    private static final List<AttributeDefinition> ATTRIBUTES = Collections.unmodifiableList(Arrays.asList(RUNTIME_UPDATES, LOGGING_MODE, PRELOAD_ASYNC));
+
+    private static final AttributeDefinition DEPLOYMENTS_PROCESSED = SimpleAttributeDefinitionBuilder.create("deployments-processed", ModelType.LONG, true)
+            .setStorageRuntime()
+            .build();
+
+    private static final AttributeDefinition PROCESSING_TIME = SimpleAttributeDefinitionBuilder.create("processing-time", ModelType.LONG, true)
+            .setMeasurementUnit(MeasurementUnit.MICROSECONDS)
+            .setStorageRuntime()
+            .build();
+
+    private static final AttributeDefinition MAX_PROCESSING_TIME = SimpleAttributeDefinitionBuilder.create("max-processing-time", ModelType.LONG, true)
+            .setMeasurementUnit(MeasurementUnit.MICROSECONDS)
+            .setStorageRuntime()
+            .build();
+
     static final DeploymentModuleResource INSTANCE = new DeploymentModuleResource();
 
     static final PersistentResourceXMLBuilder XML_BUILDER = PersistentResourceXMLDescription.builder(INSTANCE, Namespace.CURRENT.getUriString())
+            .addAttribute(RUNTIME_UPDATES)
+            .addAttribute(LOGGING_MODE)
+            .addAttribute(PRELOAD_ASYNC)
             .addChild(IncludeResource.XML_BUILDER)
             .addChild(ExcludeResource.XML_BUILDER);
 
@@ -70,9 +128,21 @@ public class DeploymentModuleResource extends PersistentResourceDefinition {
         resourceRegistration.registerOperationHandler(GenericSubsystemDescribeHandler.DEFINITION, GenericSubsystemDescribeHandler.INSTANCE, false);
     }
 
+    @Override
+    public void registerAttributes(final ManagementResourceRegistration resourceRegistration) {
+        resourceRegistration.registerReadWriteAttribute(RUNTIME_UPDATES, null, new ModelOnlyWriteAttributeHandler(RUNTIME_UPDATES));
+        resourceRegistration.registerReadWriteAttribute(LOGGING_MODE, null, new LoggingModeWriteHandler());
+        resourceRegistration.registerReadWriteAttribute(PRELOAD_ASYNC, null, new ReloadRequiredWriteAttributeHandler(PRELOAD_ASYNC));
+
+        final MetricHandler metricHandler = new MetricHandler();
+        resourceRegistration.registerMetric(DEPLOYMENTS_PROCESSED, metricHandler);
+        resourceRegistration.registerMetric(PROCESSING_TIME, metricHandler);
+        resourceRegistration.registerMetric(MAX_PROCESSING_TIME, metricHandler);
+    }
+
     @Override
     public Collection<AttributeDefinition> getAttributes() {
-        return Collections.emptyList();
+        return ATTRIBUTES;
     }
 
     @Override
@@ -81,11 +151,18 @@ public class DeploymentModuleResource extends PersistentResourceDefinition {
     }
 
     private static class DeploymentModuleAddHandler extends AbstractAddStepHandler {
+        DeploymentModuleAddHandler() {
+            super(ATTRIBUTES);
+        }
+
         @Override
         protected void performRuntime(final OperationContext context, final ModelNode operation, final ModelNode model) throws OperationFailedException {
             // Add the ModuleDependenciesService to the service container
+            final DeploymentModulesService service = new DeploymentModulesService();
+            service.setLoggingMode(toLoggingMode(LOGGING_MODE.resolveModelAttribute(context, model)));
+            service.setPreloadAsync(PRELOAD_ASYNC.resolveModelAttribute(context, model).asBoolean());
             final ServiceTarget target = context.getServiceTarget();
-            target.addService(DeploymentModulesService.NAME, new DeploymentModulesService())
+            target.addService(DeploymentModulesService.NAME, service)
                     .install();
 
             // Register the deployment unit processor
@@ -98,4 +175,61 @@ public class DeploymentModuleResource extends PersistentResourceDefinition {
             }, OperationContext.Stage.RUNTIME);
         }
     }
+
+    /**
+     * The validator of the attribute is case-insensitive, so the value is converted to upper case before the constant
+     * is looked up.
+     */
+    private static LoggingMode toLoggingMode(final ModelNode value) {
+        return LoggingMode.valueOf(value.asString().toUpperCase(Locale.ENGLISH));
+    }
+
+    private static class LoggingModeWriteHandler extends AbstractWriteAttributeHandler<Void> {
+        LoggingModeWriteHandler() {
+            super(LOGGING_MODE);
+        }
+
+        @Override
+        protected boolean applyUpdateToRuntime(final OperationContext context, final ModelNode operation, final String attributeName,
+                                               final ModelNode resolvedValue, final ModelNode currentValue, final HandbackHolder<Void> handbackHolder) {
+            setLoggingMode(context, resolvedValue);
+            return false;
+        }
+
+        @Override
+        protected void revertUpdateToRuntime(final OperationContext context, final ModelNode operation, final String attributeName,
+                                             final ModelNode valueToRestore, final ModelNode valueToRevert, final Void handback) throws OperationFailedException {
+            final ModelNode model = new ModelNode();
+            model.get(LOGGING_MODE.getName()).set(valueToRestore);
+            setLoggingMode(context, LOGGING_MODE.resolveModelAttribute(context, model));
+        }
+
+        private static void setLoggingMode(final OperationContext context, final ModelNode value) {
+            final ServiceController<?> controller = context.getServiceRegistry(true).getService(DeploymentModulesService.NAME);
+            if (controller != null) {
+                ((DeploymentModulesService) controller.getService()).setLoggingMode(toLoggingMode(value));
+            }
+        }
+    }
+
+    private static class MetricHandler implements OperationStepHandler {
+
+        @Override
+        public void execute(final OperationContext context, final ModelNode operation) throws OperationFailedException {
+            // Reading a metric does not modify the service container
+            final ServiceController<?> controller = context.getServiceRegistry(false).getService(DeploymentModulesService.NAME);
+            if (controller == null) {
+                return;
+            }
+            final DeploymentModuleMetrics metrics = ((DeploymentModulesService) controller.getService()).getMetrics();
+            final String name = operation.get(ModelDescriptionConstants.NAME).asString();
+            if (DEPLOYMENTS_PROCESSED.getName().equals(name)) {
+                context.getResult().set(metrics.getDeploymentsProcessed());
+            } else if (PROCESSING_TIME.getName().equals(name)) {
+                context.getResult().set(TimeUnit.NANOSECONDS.toMicros(metrics.getProcessingTime()));
+            } else if (MAX_PROCESSING_TIME.getName().equals(name)) {
+                context.getResult().set(TimeUnit.NANOSECONDS.toMicros(metrics.getMaxProcessingTime()));
+            }
+        }
+    }
 }
@@ -0,0 +1,170 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2015 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.example.extension;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.jboss.as.server.deployment.module.ModuleDependency;
+import org.jboss.modules.Module;
+import org.jboss.modules.ModuleIdentifier;
+import org.jboss.modules.ModuleLoader;
+
+/**
+ * An immutable plan of the module dependencies and exclusions to add to each deployment.
+ * <p>
+ * The plan is created when the includes or excludes change rather than for each deployment. The
+ * {@link ModuleDependency module dependencies} are created once and shared by all deployments. Dependencies which
+ * apply to all deployments are kept separate from the {@linkplain #getSelected() selected} dependencies which only
+ * apply to deployments with a name matching the selector.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class DeploymentModulesPlan {
+
+    static final DeploymentModulesPlan EMPTY = new DeploymentModulesPlan(Collections.<DeploymentDependency>emptyList());
+
+    private final Set<DeploymentDependency> entries;
+    private final List<ModuleDependency> dependencies;
+    private final List<ModuleIdentifier> exclusions;
+    private final List<Selected> selected;
+
+    private DeploymentModulesPlan(final Collection<DeploymentDependency> entries) {
+        final ModuleLoader moduleLoader = Module.getBootModuleLoader();
+        final List<ModuleDependency> dependencies = new ArrayList<>();
+        final List<ModuleIdentifier> exclusions = new ArrayList<>();
+        final List<Selected> selected = new ArrayList<>();
+        for (DeploymentDependency dep : entries) {
+            final ModuleDependency dependency = dep.isInclude() ? new ModuleDependency(moduleLoader, dep.getIdentifier(), dep.isOptional(), false, dep.isImport(), true) : null;
+            if (dep.getDeployment() != null) {
+                selected.add(new Selected(dep, dependency));
+            } else if (dependency != null) {
+                dependencies.add(dependency);
+            } else {
+                exclusions.add(dep.getIdentifier());
+            }
+        }
+        this.entries = Collections.unmodifiableSet(new LinkedHashSet<>(entries));
+        this.dependencies = Collections.unmodifiableList(dependencies);
+        this.exclusions = Collections.unmodifiableList(exclusions);
+        this.selected = Collections.unmodifiableList(selected);
+    }
+
+    /**
+     * Creates a plan for the dependencies in the order they were defined.
+     *
+     * @param entries the included and excluded dependencies
+     *
+     * @return the plan
+     */
+    static DeploymentModulesPlan of(final Collection<DeploymentDependency> entries) {
+        return entries.isEmpty() ? EMPTY : new DeploymentModulesPlan(entries);
+    }
+
+    /**
+     * Returns the included and excluded dependencies the plan was created from.
+     *
+     * @return an unmodifiable set of the dependencies
+     */
+    public Set<DeploymentDependency> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Returns the module dependencies to add to every deployment.
+     *
+     * @return an unmodifiable list of the module dependencies
+     */
+    public List<ModuleDependency> getDependencies() {
+        return dependencies;
+    }
+
+    /**
+     * Returns the modules to exclude from every deployment.
+     *
+     * @return an unmodifiable list of the excluded modules
+     */
+    public List<ModuleIdentifier> getExclusions() {
+        return exclusions;
+    }
+
+    /**
+     * Returns the includes and excludes which only apply to deployments matching a selector.
+     *
+     * @return an unmodifiable list of the selected includes and excludes
+     */
+    public List<Selected> getSelected() {
+        return selected;
+    }
+
+    /**
+     * Indicates whether there is nothing to add to a deployment.
+     *
+     * @return {@code true} if there are no dependencies or exclusions
+     */
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * An include or exclude which only applies to deployments with a name matching the selector.
+     */
+    public static class Selected {
+        private final DeploymentDependency entry;
+        private final ModuleDependency dependency;
+
+        private Selected(final DeploymentDependency entry, final ModuleDependency dependency) {
+            this.entry = entry;
+            this.dependency = dependency;
+        }
+
+        /**
+         * Returns the selector the deployment name must match.
+         *
+         * @return the deployment name selector
+         */
+        public String getDeployment() {
+            return entry.getDeployment();
+        }
+
+        /**
+         * Returns the identifier of the included or excluded module.
+         *
+         * @return the module identifier
+         */
+        public ModuleIdentifier getIdentifier() {
+            return entry.getIdentifier();
+        }
+
+        /**
+         * Returns the module dependency to add to a matching deployment.
+         *
+         * @return the module dependency or {@code null} if the module is excluded
+         */
+        public ModuleDependency getDependency() {
+            return dependency;
+        }
+    }
+}
@@ -19,56 +19,262 @@
 
 package org.wildfly.example.extension;
 
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.jboss.modules.Module;
 import org.jboss.modules.ModuleIdentifier;
+import org.jboss.modules.ModuleLoadException;
 import org.jboss.msc.service.Service;
 import org.jboss.msc.service.ServiceName;
 import org.jboss.msc.service.StartContext;
 import org.jboss.msc.service.StartException;
 import org.jboss.msc.service.StopContext;
+import org.wildfly.example.extension.logging.DeploymentModuleLogger;
 
 /**
+ * Holds the modules to be included or excluded on all deployments.
+ * <p>
+ * Each time an include or exclude is changed a new immutable {@link DeploymentModulesPlan plan} is created. Deployments
+ * only read the current plan which does not require a lock or a copy of the configured modules.
+ * </p>
+ * <p>
+ * The service also owns the bounded executor used to preload modules.
+ * </p>
+ * <p>
+ * Includes with {@code preload} enabled have their module loaded and linked when the service starts, or when the
+ * include is added if the service has already started, rather than by the first deployment it is linked to. A missing
+ * module which is not optional fails the start of the service.
+ * </p>
+ *
  * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
  */
 public class DeploymentModulesService implements Service<Set<DeploymentDependency>> {
     public static final ServiceName NAME = ServiceName.of("wildfly", "example", "deployment", "modules");
 
-    private final Map<ModuleIdentifier, DeploymentDependency> modules = Collections.synchronizedMap(new LinkedHashMap<ModuleIdentifier, DeploymentDependency>());
+    private static final int MAX_THREADS = 8;
+    private static final String PRELOAD_RESOURCE = "META-INF/MANIFEST.MF";
+
+    private final Map<ModuleIdentifier, DeploymentDependency> modules = new LinkedHashMap<>();
+    private final DeploymentModuleMetrics metrics = new DeploymentModuleMetrics();
+    private volatile DeploymentModulesPlan plan = DeploymentModulesPlan.EMPTY;
+    private volatile LoggingMode loggingMode = LoggingMode.INFO;
+    private volatile boolean preloadAsync;
+    private volatile ThreadPoolExecutor executor;
+    private boolean started;
 
     @Override
     public void start(final StartContext context) throws StartException {
+        final int threads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), MAX_THREADS));
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new WorkerThreadFactory());
+        executor.allowCoreThreadTimeOut(true);
+        final List<DeploymentDependency> preload = new ArrayList<>();
+        synchronized (this) {
+            this.executor = executor;
+            started = true;
+            // Includes added after this point are preloaded when they are added
+            for (DeploymentDependency dependency : modules.values()) {
+                if (dependency.isInclude() && dependency.isPreload()) {
+                    preload.add(dependency);
+                }
+            }
+        }
+        if (preload.isEmpty()) {
+            return;
+        }
+        if (preloadAsync) {
+            context.asynchronous();
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        preloadAll(preload);
+                        context.complete();
+                    } catch (StartException e) {
+                        context.failed(e);
+                    } catch (Throwable t) {
+                        // Any other failure must still complete the asynchronous start or the service never leaves STARTING
+                        context.failed(new StartException(t));
+                    }
+                }
+            });
+        } else {
+            preloadAll(preload);
+        }
     }
 
     @Override
-    public void stop(final StopContext context) {
+    public synchronized void stop(final StopContext context) {
+        started = false;
         modules.clear();
+        plan = DeploymentModulesPlan.EMPTY;
+        final ExecutorService executor = this.executor;
+        if (executor != null) {
+            executor.shutdown();
+            this.executor = null;
+        }
     }
 
     @Override
     public Set<DeploymentDependency> getValue() throws IllegalStateException, IllegalArgumentException {
-        synchronized (modules) {
-            return new LinkedHashSet<>(modules.values());
+        return plan.getEntries();
+    }
+
+    /**
+     * Returns the current plan of the modules to add to or exclude from deployments.
+     *
+     * @return the current plan
+     */
+    public DeploymentModulesPlan getPlan() {
+        return plan;
+    }
+
+    /**
+     * Returns the runtime metrics of the deployment processor.
+     *
+     * @return the metrics
+     */
+    public DeploymentModuleMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns how the modules included on or excluded from a deployment are logged.
+     *
+     * @return the logging mode
+     */
+    public LoggingMode getLoggingMode() {
+        return loggingMode;
+    }
+
+    void setLoggingMode(final LoggingMode loggingMode) {
+        this.loggingMode = loggingMode;
+    }
+
+    /**
+     * Indicates whether modules are preloaded on the executor of the service rather than the thread starting the
+     * service or adding the include.
+     *
+     * @return {@code true} if modules are preloaded asynchronously
+     */
+    boolean isPreloadAsync() {
+        return preloadAsync;
+    }
+
+    void setPreloadAsync(final boolean preloadAsync) {
+        this.preloadAsync = preloadAsync;
+    }
+
+    /**
+     * Indicates whether the service has been started. Includes added before the service is started are preloaded
+     * by the start of the service.
+     *
+     * @return {@code true} if the service has been started
+     */
+    synchronized boolean isStarted() {
+        return started;
+    }
+
+    /**
+     * Loads and links the module of the include. If the module can not be found and the include is optional the
+     * failure is ignored.
+     *
+     * @param dependency the include to preload
+     *
+     * @throws ModuleLoadException if the module could not be loaded
+     */
+    void preload(final DeploymentDependency dependency) throws ModuleLoadException {
+        try {
+            final Module module = Module.getBootModuleLoader().loadModule(dependency.getIdentifier());
+            // Looking up a resource links the module and its dependencies
+            module.getClassLoader().getResource(PRELOAD_RESOURCE);
+            DeploymentModuleLogger.LOGGER.debugf("Preloaded module %s", dependency.getIdentifier());
+        } catch (ModuleLoadException e) {
+            if (!dependency.isOptional()) {
+                throw e;
+            }
+            DeploymentModuleLogger.LOGGER.debugf(e, "Optional module %s could not be preloaded", dependency.getIdentifier());
         }
     }
 
-    protected DeploymentDependency addInclude(final ModuleIdentifier moduleIdentifier, final boolean importServices, final boolean optional) {
-        return modules.put(moduleIdentifier, new DeploymentDependency(moduleIdentifier, true, importServices, optional));
+    /**
+     * Returns the bounded executor used to preload modules.
+     *
+     * @return the executor
+     *
+     * @throws IllegalStateException if the service is not started
+     */
+    ExecutorService getExecutor() {
+        final ExecutorService executor = this.executor;
+        if (executor == null) {
+            throw new IllegalStateException("The service " + NAME + " is not started");
+        }
+        return executor;
+    }
+
+    /**
+     * Returns the current include or exclude for the module.
+     *
+     * @param moduleIdentifier the module identifier
+     *
+     * @return the include or exclude or {@code null} if the module is not included or excluded
+     */
+    synchronized DeploymentDependency getDependency(final ModuleIdentifier moduleIdentifier) {
+        return modules.get(moduleIdentifier);
+    }
+
+    protected synchronized DeploymentDependency addInclude(final ModuleIdentifier moduleIdentifier, final boolean importServices, final boolean optional,
+                                                           final String deployment, final boolean preload) {
+        return update(moduleIdentifier, new DeploymentDependency(moduleIdentifier, true, importServices, optional, deployment, preload));
     }
 
-    protected DeploymentDependency removeInclude(final ModuleIdentifier moduleIdentifier) {
-        return modules.remove(moduleIdentifier);
+    protected synchronized DeploymentDependency removeInclude(final ModuleIdentifier moduleIdentifier) {
+        return update(moduleIdentifier, null);
     }
 
-    protected DeploymentDependency addExclude(final ModuleIdentifier moduleIdentifier) {
-        return modules.put(moduleIdentifier, new DeploymentDependency(moduleIdentifier, false, false, false));
+    protected synchronized DeploymentDependency addExclude(final ModuleIdentifier moduleIdentifier, final String deployment) {
+        return update(moduleIdentifier, new DeploymentDependency(moduleIdentifier, false, false, false, deployment, false));
     }
 
-    protected DeploymentDependency removeExclude(final ModuleIdentifier moduleIdentifier) {
-        return modules.remove(moduleIdentifier);
+    protected synchronized DeploymentDependency removeExclude(final ModuleIdentifier moduleIdentifier) {
+        return update(moduleIdentifier, null);
+    }
+
+    private DeploymentDependency update(final ModuleIdentifier moduleIdentifier, final DeploymentDependency dependency) {
+        assert Thread.holdsLock(this);
+        final DeploymentDependency previous = dependency == null ? modules.remove(moduleIdentifier) : modules.put(moduleIdentifier, dependency);
+        plan = DeploymentModulesPlan.of(modules.values());
+        return previous;
+    }
+
+    private void preloadAll(final List<DeploymentDependency> dependencies) throws StartException {
+        for (DeploymentDependency dependency : dependencies) {
+            try {
+                preload(dependency);
+            } catch (ModuleLoadException e) {
+                throw DeploymentModuleLogger.LOGGER.preloadFailed(e, dependency.getIdentifier());
+            }
+        }
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(r, "deployment-modules-worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
     }
 }
@@ -0,0 +1,362 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2015 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.example.extension;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.jboss.as.controller.OperationContext;
+import org.jboss.as.controller.OperationFailedException;
+import org.jboss.as.controller.OperationStepHandler;
+import org.jboss.as.server.deployment.Services;
+import org.jboss.dmr.ModelNode;
+import org.jboss.msc.service.AbstractServiceListener;
+import org.jboss.msc.service.ServiceController;
+import org.jboss.msc.service.ServiceName;
+import org.jboss.msc.service.ServiceRegistry;
+import org.jboss.msc.service.StabilityMonitor;
+import org.wildfly.example.extension.deployment.DeploymentSelector;
+import org.wildfly.example.extension.logging.DeploymentModuleLogger;
+
+/**
+ * Redeploys the deployments affected by a change to an include or exclude when the subsystem has
+ * {@code runtime-updates} enabled.
+ * <p>
+ * A deployment is affected if its name, or the name of one of its subdeployments, matches the selector of the changed
+ * include or exclude. The top level deployment unit service of each affected deployment is set to
+ * {@linkplain ServiceController.Mode#NEVER never} in the runtime stage and back to
+ * {@linkplain ServiceController.Mode#ACTIVE active} once it is down, which runs the deployment processors again with
+ * the new {@link DeploymentModulesPlan plan}. The restart is not waited on in the runtime stage, a verify stage step
+ * waits for the deployments and fails the operation if a deployment did not start.
+ * </p>
+ * <p>
+ * At most {@value #MAX_CONCURRENT_RESTARTS}, and no more than the number of available processors, deployments are
+ * restarted at the same time. The remaining deployments stay active until a restart completes, so a selector which
+ * matches every deployment does not stop every deployment at once.
+ * </p>
+ * <p>
+ * If the operation is rolled back the plan is reverted first and the affected deployments are restarted again, which
+ * leaves each deployment active with the original plan.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+class DeploymentRedeployer {
+
+    /**
+     * The property used by the management layer for the maximum time, in seconds, to wait for services.
+     */
+    private static final String BLOCKING_TIMEOUT_PROPERTY = "jboss.as.management.blocking.timeout";
+    private static final int MAX_CONCURRENT_RESTARTS = 8;
+
+    private DeploymentRedeployer() {
+    }
+
+    /**
+     * Applies a change to an include or exclude. If {@code runtime-updates} is enabled the affected deployments are
+     * restarted and a step which waits for the deployments is added to the verify stage, otherwise the server is put
+     * into a reload required state.
+     *
+     * @param context      the operation context
+     * @param dependencies the dependencies which were added or removed, {@code null} values are ignored
+     *
+     * @throws OperationFailedException if the model of the subsystem could not be read
+     */
+    static void apply(final OperationContext context, final DeploymentDependency... dependencies) throws OperationFailedException {
+        if (isRuntimeUpdates(context)) {
+            // Nothing has been deployed yet while booting
+            if (!context.isBooting()) {
+                final RestartQueue restarts = restart(context, dependencies);
+                if (restarts != null) {
+                    context.addStep(new VerifyRedeployHandler(restarts), OperationContext.Stage.VERIFY);
+                }
+            }
+        } else {
+            context.reloadRequired();
+        }
+    }
+
+    /**
+     * Reverts a change applied with {@link #apply(OperationContext, DeploymentDependency...)}. The affected deployments
+     * are restarted with the reverted plan, the restart is not waited on.
+     *
+     * @param context      the operation context
+     * @param dependencies the dependencies which were reverted, {@code null} values are ignored
+     */
+    static void rollback(final OperationContext context, final DeploymentDependency... dependencies) {
+        try {
+            if (isRuntimeUpdates(context)) {
+                if (!context.isBooting()) {
+                    restart(context, dependencies);
+                }
+            } else {
+                context.revertReloadRequired();
+            }
+        } catch (OperationFailedException | RuntimeException e) {
+            DeploymentModuleLogger.LOGGER.rollbackRedeployFailed(e);
+        }
+    }
+
+    private static boolean isRuntimeUpdates(final OperationContext context) throws OperationFailedException {
+        final ModelNode model = context.readResourceFromRoot(context.getCurrentAddress().getParent(), false).getModel();
+        return DeploymentModuleResource.RUNTIME_UPDATES.resolveModelAttribute(context, model).asBoolean();
+    }
+
+    /**
+     * Starts restarting the affected deployments.
+     *
+     * @return the queue of restarts or {@code null} if no deployment is affected
+     */
+    private static RestartQueue restart(final OperationContext context, final DeploymentDependency... dependencies) {
+        final Map<String, ServiceController<?>> affected = findAffected(context.getServiceRegistry(true), dependencies);
+        if (affected.isEmpty()) {
+            return null;
+        }
+        final RestartQueue restarts = new RestartQueue(affected);
+        restarts.start(Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), MAX_CONCURRENT_RESTARTS)));
+        return restarts;
+    }
+
+    private static Map<String, ServiceController<?>> findAffected(final ServiceRegistry registry, final DeploymentDependency... dependencies) {
+        boolean all = false;
+        final List<Pattern> selectors = new ArrayList<>();
+        for (DeploymentDependency dependency : dependencies) {
+            if (dependency != null) {
+                if (dependency.getDeployment() == null) {
+                    all = true;
+                } else {
+                    selectors.add(DeploymentSelector.compile(dependency.getDeployment()));
+                }
+            }
+        }
+        final Map<String, ServiceController<?>> affected = new LinkedHashMap<>();
+        if (!all && selectors.isEmpty()) {
+            return affected;
+        }
+        for (ServiceName name : registry.getServiceNames()) {
+            final ServiceName parent = name.getParent();
+            final String deployment;
+            if (Services.JBOSS_DEPLOYMENT_UNIT.equals(parent)) {
+                // jboss.deployment.unit."app.ear"
+                if (!all && !matches(selectors, name.getSimpleName())) {
+                    continue;
+                }
+                deployment = name.getSimpleName();
+            } else if (parent != null && Services.JBOSS_DEPLOYMENT_SUB_UNIT.equals(parent.getParent())) {
+                // jboss.deployment.subunit."app.ear"."web.war", the parent deployment is redeployed
+                if (all || !matches(selectors, name.getSimpleName())) {
+                    continue;
+                }
+                deployment = parent.getSimpleName();
+            } else {
+                continue;
+            }
+            if (!affected.containsKey(deployment)) {
+                final ServiceController<?> controller = registry.getService(Services.deploymentUnitName(deployment));
+                // Only deployments which have started or failed to start will reach the down state when stopped
+                if (controller != null && controller.getMode() == ServiceController.Mode.ACTIVE &&
+                        (controller.getState() == ServiceController.State.UP || controller.getState() == ServiceController.State.START_FAILED)) {
+                    affected.put(deployment, controller);
+                }
+            }
+        }
+        return affected;
+    }
+
+    private static boolean matches(final Collection<Pattern> selectors, final String name) {
+        for (Pattern selector : selectors) {
+            if (selector.matcher(name).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The affected deployments of a change. A bounded number of deployments are restarted at the same time, each
+     * completed restart starts the restart of the next deployment.
+     */
+    private static class RestartQueue {
+        private final Map<String, ServiceController<?>> deployments;
+        private final Deque<Map.Entry<String, ServiceController<?>>> pending;
+        private final Set<ServiceController<?>> completed = new HashSet<>();
+
+        private RestartQueue(final Map<String, ServiceController<?>> deployments) {
+            this.deployments = deployments;
+            pending = new ArrayDeque<>(deployments.entrySet());
+        }
+
+        void start(final int concurrent) {
+            for (int i = 0; i < concurrent; i++) {
+                next();
+            }
+        }
+
+        /**
+         * Restarts the next pending deployment. A deployment which was undeployed or disabled concurrently is skipped.
+         */
+        void next() {
+            while (true) {
+                final Map.Entry<String, ServiceController<?>> entry;
+                synchronized (this) {
+                    entry = pending.poll();
+                }
+                if (entry == null) {
+                    return;
+                }
+                final ServiceController<?> controller = entry.getValue();
+                DeploymentModuleLogger.LOGGER.redeploying(entry.getKey());
+                final RestartListener listener = new RestartListener(this);
+                controller.addListener(listener);
+                if (controller.compareAndSetMode(ServiceController.Mode.ACTIVE, ServiceController.Mode.NEVER)) {
+                    return;
+                }
+                controller.removeListener(listener);
+                complete(controller);
+            }
+        }
+
+        synchronized void complete(final ServiceController<?> controller) {
+            completed.add(controller);
+            notifyAll();
+        }
+
+        /**
+         * Waits until the restart of every deployment has completed.
+         *
+         * @param timeout the maximum time to wait
+         * @param unit    the unit of the timeout
+         *
+         * @return {@code true} if every restart completed, {@code false} if the timeout elapsed
+         *
+         * @throws InterruptedException if interrupted while waiting
+         */
+        synchronized boolean await(final long timeout, final TimeUnit unit) throws InterruptedException {
+            final long deadline = System.nanoTime() + unit.toNanos(timeout);
+            while (completed.size() < deployments.size()) {
+                final long remaining = deadline - System.nanoTime();
+                if (remaining <= 0L) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+            return true;
+        }
+
+        synchronized boolean isCompleted(final ServiceController<?> controller) {
+            return completed.contains(controller);
+        }
+    }
+
+    /**
+     * Sets the mode of the deployment back to active once it is down and starts the next restart once the deployment
+     * has started, failed to start or was removed.
+     */
+    private static class RestartListener extends AbstractServiceListener<Object> {
+        private final RestartQueue queue;
+        private volatile boolean down;
+
+        private RestartListener(final RestartQueue queue) {
+            this.queue = queue;
+        }
+
+        @Override
+        public void transition(final ServiceController<?> controller, final ServiceController.Transition transition) {
+            final ServiceController.Substate after = transition.getAfter();
+            if (after == ServiceController.Substate.REMOVED) {
+                done(controller);
+            } else if (!down) {
+                if (after == ServiceController.Substate.DOWN) {
+                    down = true;
+                    if (!controller.compareAndSetMode(ServiceController.Mode.NEVER, ServiceController.Mode.ACTIVE)) {
+                        // The mode was changed concurrently, the deployment is no longer restarted by this change
+                        done(controller);
+                    }
+                }
+            } else if (after == ServiceController.Substate.UP || after == ServiceController.Substate.START_FAILED ||
+                    after == ServiceController.Substate.PROBLEM) {
+                done(controller);
+            }
+        }
+
+        private void done(final ServiceController<?> controller) {
+            controller.removeListener(this);
+            queue.complete(controller);
+            queue.next();
+        }
+    }
+
+    /**
+     * Waits for the restarted deployments and fails the operation if any did not start.
+     */
+    private static class VerifyRedeployHandler implements OperationStepHandler {
+        private final RestartQueue restarts;
+
+        private VerifyRedeployHandler(final RestartQueue restarts) {
+            this.restarts = restarts;
+        }
+
+        @Override
+        public void execute(final OperationContext context, final ModelNode operation) throws OperationFailedException {
+            final StabilityMonitor monitor = new StabilityMonitor();
+            for (ServiceController<?> controller : restarts.deployments.values()) {
+                monitor.addController(controller);
+            }
+            final Set<ServiceController<?>> failed = new HashSet<>();
+            final Set<ServiceController<?>> problems = new HashSet<>();
+            try {
+                final long timeout = TimeUnit.SECONDS.toNanos(Long.getLong(BLOCKING_TIMEOUT_PROPERTY, 300L));
+                final long start = System.nanoTime();
+                restarts.await(timeout, TimeUnit.NANOSECONDS);
+                monitor.awaitStability(Math.max(0L, timeout - (System.nanoTime() - start)), TimeUnit.NANOSECONDS, failed, problems);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw DeploymentModuleLogger.LOGGER.redeployInterrupted(e);
+            } finally {
+                monitor.clear();
+            }
+            final List<String> notStarted = new ArrayList<>();
+            Throwable cause = null;
+            for (Map.Entry<String, ServiceController<?>> entry : restarts.deployments.entrySet()) {
+                final ServiceController<?> controller = entry.getValue();
+                // A deployment still waiting to be restarted has not been redeployed with the new plan
+                if (!restarts.isCompleted(controller) || failed.contains(controller) || problems.contains(controller) ||
+                        controller.getState() != ServiceController.State.UP) {
+                    notStarted.add(entry.getKey());
+                    if (cause == null) {
+                        cause = controller.getStartException();
+                    }
+                }
+            }
+            if (!notStarted.isEmpty()) {
+                throw DeploymentModuleLogger.LOGGER.redeployFailed(cause, notStarted);
+            }
+        }
+    }
+}
@@ -21,17 +21,21 @@ package org.wildfly.example.extension;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 
 import org.jboss.as.controller.AbstractAddStepHandler;
+import org.jboss.as.controller.AbstractRemoveStepHandler;
 import org.jboss.as.controller.AttributeDefinition;
 import org.jboss.as.controller.OperationContext;
 import org.jboss.as.controller.OperationFailedException;
 import org.jboss.as.controller.PathElement;
 import org.jboss.as.controller.PersistentResourceDefinition;
 import org.jboss.as.controller.PersistentResourceXMLDescription;
-import org.jboss.as.controller.ReloadRequiredRemoveStepHandler;
+import org.jboss.as.controller.SimpleAttributeDefinitionBuilder;
+import org.jboss.as.controller.operations.validation.StringLengthValidator;
 import org.jboss.as.controller.registry.Resource;
 import org.jboss.dmr.ModelNode;
+import org.jboss.dmr.ModelType;
 import org.jboss.modules.ModuleIdentifier;
 import org.jboss.msc.service.ServiceRegistry;
 
@@ -42,43 +46,82 @@ public class ExcludeResource extends PersistentResourceDefinition {
 
     private static final String NAME = "exclude";
 
+    private static final AttributeDefinition DEPLOYMENT = SimpleAttributeDefinitionBuilder.create("deployment", ModelType.STRING, true)
+            .setAllowExpression(true)
+            .setValidator(new StringLengthValidator(1, true, true))
+            .setRestartAllServices()
+            .build();
+
+    private static final List<AttributeDefinition> ATTRIBUTES = Collections.singletonList(DEPLOYMENT);
+
     static final ExcludeResource INSTANCE = new ExcludeResource();
 
-    static final PersistentResourceXMLDescription.PersistentResourceXMLBuilder XML_BUILDER = PersistentResourceXMLDescription.builder(INSTANCE);
+    static final PersistentResourceXMLDescription.PersistentResourceXMLBuilder XML_BUILDER = PersistentResourceXMLDescription.builder(INSTANCE)
+            .addAttribute(DEPLOYMENT);
 
     private ExcludeResource() {
         super(
                 PathElement.pathElement(NAME),
                 Resources.getResourceDescriptionResolver(NAME),
-                new IncludeAddHandler(),
-                ReloadRequiredRemoveStepHandler.INSTANCE
+                new ExcludeAddHandler(),
+                new ExcludeRemoveHandler()
         );
     }
 
     @Override
     public Collection<AttributeDefinition> getAttributes() {
-        return Collections.emptyList();
+        return ATTRIBUTES;
     }
 
-    private static class IncludeAddHandler extends AbstractAddStepHandler {
+    private static DeploymentModulesService getService(final OperationContext context) {
+        final ServiceRegistry registry = context.getServiceRegistry(true);
+        return (DeploymentModulesService) registry.getRequiredService(DeploymentModulesService.NAME).getService();
+    }
+
+    private static class ExcludeAddHandler extends AbstractAddStepHandler {
+        public ExcludeAddHandler() {
+            super(ATTRIBUTES);
+        }
 
         @Override
         protected void performRuntime(final OperationContext context, final ModelNode operation, final ModelNode model) throws OperationFailedException {
-            final ServiceRegistry registry = context.getServiceRegistry(true);
-            final DeploymentModulesService service = (DeploymentModulesService) registry.getRequiredService(DeploymentModulesService.NAME).getService();
+            final DeploymentModulesService service = getService(context);
 
             final ModuleIdentifier identifier = ModuleIdentifier.create(context.getCurrentAddressValue());
-            service.addExclude(identifier);
-            context.reloadRequired();
+            final String deployment = Resources.resolveDeploymentSelector(context, DEPLOYMENT, model);
+            final DeploymentDependency previous = service.addExclude(identifier, deployment);
+            DeploymentRedeployer.apply(context, previous, service.getDependency(identifier));
         }
 
         @Override
         protected void rollbackRuntime(final OperationContext context, final ModelNode operation, final Resource resource) {
-            final ServiceRegistry registry = context.getServiceRegistry(true);
-            final DeploymentModulesService service = (DeploymentModulesService) registry.getRequiredService(DeploymentModulesService.NAME).getService();
+            final DeploymentModulesService service = getService(context);
+
+            final ModuleIdentifier identifier = ModuleIdentifier.create(context.getCurrentAddressValue());
+            final DeploymentDependency removed = service.removeExclude(identifier);
+            DeploymentRedeployer.rollback(context, removed);
+        }
+    }
+
+    private static class ExcludeRemoveHandler extends AbstractRemoveStepHandler {
+
+        @Override
+        protected void performRuntime(final OperationContext context, final ModelNode operation, final ModelNode model) throws OperationFailedException {
+            final DeploymentModulesService service = getService(context);
+
+            final ModuleIdentifier identifier = ModuleIdentifier.create(context.getCurrentAddressValue());
+            final DeploymentDependency removed = service.removeExclude(identifier);
+            DeploymentRedeployer.apply(context, removed);
+        }
+
+        @Override
+        protected void recoverServices(final OperationContext context, final ModelNode operation, final ModelNode model) throws OperationFailedException {
+            final DeploymentModulesService service = getService(context);
 
             final ModuleIdentifier identifier = ModuleIdentifier.create(context.getCurrentAddressValue());
-            service.removeExclude(identifier);
+            final String deployment = Resources.resolveDeploymentSelector(context, DEPLOYMENT, model);
+            service.addExclude(identifier, deployment);
+            DeploymentRedeployer.rollback(context, service.getDependency(identifier));
         }
     }
 }
@@ -23,21 +23,30 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.jboss.as.controller.AbstractAddStepHandler;
+import org.jboss.as.controller.AbstractRemoveStepHandler;
 import org.jboss.as.controller.AttributeDefinition;
 import org.jboss.as.controller.OperationContext;
 import org.jboss.as.controller.OperationFailedException;
+import org.jboss.as.controller.OperationStepHandler;
 import org.jboss.as.controller.PathElement;
 import org.jboss.as.controller.PersistentResourceDefinition;
 import org.jboss.as.controller.PersistentResourceXMLDescription;
-import org.jboss.as.controller.ReloadRequiredRemoveStepHandler;
 import org.jboss.as.controller.SimpleAttributeDefinitionBuilder;
+import org.jboss.as.controller.operations.validation.StringLengthValidator;
+import org.jboss.as.controller.registry.ManagementResourceRegistration;
 import org.jboss.as.controller.registry.Resource;
 import org.jboss.dmr.ModelNode;
 import org.jboss.dmr.ModelType;
 import org.jboss.modules.ModuleIdentifier;
+import org.jboss.modules.ModuleLoadException;
+import org.jboss.msc.service.ServiceController;
 import org.jboss.msc.service.ServiceRegistry;
+import org.wildfly.example.extension.logging.DeploymentModuleLogger;
 
 /**
  * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
@@ -56,20 +65,38 @@ public class IncludeResource extends PersistentResourceDefinition {
             .setRestartAllServices()
             .build();
 
-    private static final List<AttributeDefinition> ATTRIBUTES = Collections.unmodifiableList(Arrays.asList(IMPORT_SERVICES, OPTIONAL));
+    private static final AttributeDefinition DEPLOYMENT = SimpleAttributeDefinitionBuilder.create("deployment", ModelType.STRING, true)
+            .setAllowExpression(true)
+            .setValidator(new StringLengthValidator(1, true, true))
+            .setRestartAllServices()
+            .build();
+
+    private static final AttributeDefinition PRELOAD = SimpleAttributeDefinitionBuilder.create("preload", ModelType.BOOLEAN, true)
+            .setAllowExpression(true)
+            .setDefaultValue(new ModelNode(false))
+            .setRestartAllServices()
+            .build();
+
+    private static final List<AttributeDefinition> ATTRIBUTES = Collections.unmodifiableList(Arrays.asList(IMPORT_SERVICES, OPTIONAL, DEPLOYMENT, PRELOAD));
+
+    private static final AttributeDefinition INCLUSION_COUNT = SimpleAttributeDefinitionBuilder.create("inclusion-count", ModelType.LONG, true)
+            .setStorageRuntime()
+            .build();
 
     static final IncludeResource INSTANCE = new IncludeResource();
 
     static final PersistentResourceXMLDescription.PersistentResourceXMLBuilder XML_BUILDER = PersistentResourceXMLDescription.builder(INSTANCE)
             .addAttribute(IMPORT_SERVICES)
-            .addAttribute(OPTIONAL);
+            .addAttribute(OPTIONAL)
+            .addAttribute(DEPLOYMENT)
+            .addAttribute(PRELOAD);
 
     private IncludeResource() {
         super(
                 PathElement.pathElement(NAME),
                 Resources.getResourceDescriptionResolver(NAME),
                 new IncludeAddHandler(),
-                ReloadRequiredRemoveStepHandler.INSTANCE
+                new IncludeRemoveHandler()
         );
     }
 
@@ -78,6 +105,65 @@ public class IncludeResource extends PersistentResourceDefinition {
         return ATTRIBUTES;
     }
 
+    @Override
+    public void registerAttributes(final ManagementResourceRegistration resourceRegistration) {
+        super.registerAttributes(resourceRegistration);
+        resourceRegistration.registerMetric(INCLUSION_COUNT, new InclusionCountHandler());
+    }
+
+    private static DeploymentModulesService getService(final OperationContext context) {
+        final ServiceRegistry registry = context.getServiceRegistry(true);
+        return (DeploymentModulesService) registry.getRequiredService(DeploymentModulesService.NAME).getService();
+    }
+
+    private static DeploymentDependency addInclude(final OperationContext context, final DeploymentModulesService service,
+                                                   final ModuleIdentifier identifier, final ModelNode model) throws OperationFailedException {
+        final boolean importServices = IMPORT_SERVICES.resolveModelAttribute(context, model).asBoolean();
+        final boolean optional = OPTIONAL.resolveModelAttribute(context, model).asBoolean();
+        final String deployment = Resources.resolveDeploymentSelector(context, DEPLOYMENT, model);
+        final boolean preload = PRELOAD.resolveModelAttribute(context, model).asBoolean();
+        return service.addInclude(identifier, importServices, optional, deployment, preload);
+    }
+
+    /**
+     * Preloads the module if the service has already been started, otherwise the module is preloaded when the service
+     * starts. If the preload is asynchronous the operation waits for it in the verify stage.
+     */
+    private static void preload(final OperationContext context, final DeploymentModulesService service,
+                                final DeploymentDependency dependency) throws OperationFailedException {
+        if (dependency == null || !dependency.isPreload() || !service.isStarted()) {
+            return;
+        }
+        if (service.isPreloadAsync()) {
+            final Future<Void> future = service.getExecutor().submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    service.preload(dependency);
+                    return null;
+                }
+            });
+            context.addStep(new OperationStepHandler() {
+                @Override
+                public void execute(final OperationContext context, final ModelNode operation) throws OperationFailedException {
+                    try {
+                        future.get();
+                    } catch (ExecutionException e) {
+                        throw DeploymentModuleLogger.LOGGER.preloadIncludeFailed(e.getCause(), dependency.getIdentifier());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw DeploymentModuleLogger.LOGGER.preloadIncludeFailed(e, dependency.getIdentifier());
+                    }
+                }
+            }, OperationContext.Stage.VERIFY);
+        } else {
+            try {
+                service.preload(dependency);
+            } catch (ModuleLoadException e) {
+                throw DeploymentModuleLogger.LOGGER.preloadIncludeFailed(e, dependency.getIdentifier());
+            }
+        }
+    }
+
     private static class IncludeAddHandler extends AbstractAddStepHandler {
         public IncludeAddHandler() {
             super(ATTRIBUTES);
@@ -85,23 +171,56 @@ public class IncludeResource extends PersistentResourceDefinition {
 
         @Override
         protected void performRuntime(final OperationContext context, final ModelNode operation, final ModelNode model) throws OperationFailedException {
-            final ServiceRegistry registry = context.getServiceRegistry(true);
-            final DeploymentModulesService service = (DeploymentModulesService) registry.getRequiredService(DeploymentModulesService.NAME).getService();
+            final DeploymentModulesService service = getService(context);
 
             final ModuleIdentifier identifier = ModuleIdentifier.create(context.getCurrentAddressValue());
-            final boolean importServices = IMPORT_SERVICES.resolveModelAttribute(context, model).asBoolean();
-            final boolean optional = OPTIONAL.resolveModelAttribute(context, model).asBoolean();
-            service.addInclude(identifier, importServices, optional);
-            context.reloadRequired();
+            final DeploymentDependency previous = addInclude(context, service, identifier, model);
+            final DeploymentDependency current = service.getDependency(identifier);
+            preload(context, service, current);
+            DeploymentRedeployer.apply(context, previous, current);
         }
 
         @Override
         protected void rollbackRuntime(final OperationContext context, final ModelNode operation, final Resource resource) {
-            final ServiceRegistry registry = context.getServiceRegistry(true);
-            final DeploymentModulesService service = (DeploymentModulesService) registry.getRequiredService(DeploymentModulesService.NAME).getService();
+            final DeploymentModulesService service = getService(context);
+
+            final ModuleIdentifier identifier = ModuleIdentifier.create(context.getCurrentAddressValue());
+            final DeploymentDependency removed = service.removeInclude(identifier);
+            DeploymentRedeployer.rollback(context, removed);
+        }
+    }
+
+    private static class IncludeRemoveHandler extends AbstractRemoveStepHandler {
+
+        @Override
+        protected void performRuntime(final OperationContext context, final ModelNode operation, final ModelNode model) throws OperationFailedException {
+            final DeploymentModulesService service = getService(context);
 
             final ModuleIdentifier identifier = ModuleIdentifier.create(context.getCurrentAddressValue());
-            service.removeInclude(identifier);
+            final DeploymentDependency removed = service.removeInclude(identifier);
+            DeploymentRedeployer.apply(context, removed);
+        }
+
+        @Override
+        protected void recoverServices(final OperationContext context, final ModelNode operation, final ModelNode model) throws OperationFailedException {
+            final DeploymentModulesService service = getService(context);
+
+            final ModuleIdentifier identifier = ModuleIdentifier.create(context.getCurrentAddressValue());
+            addInclude(context, service, identifier, model);
+            DeploymentRedeployer.rollback(context, service.getDependency(identifier));
+        }
+    }
+
+    private static class InclusionCountHandler implements OperationStepHandler {
+
+        @Override
+        public void execute(final OperationContext context, final ModelNode operation) throws OperationFailedException {
+            final ServiceController<?> controller = context.getServiceRegistry(false).getService(DeploymentModulesService.NAME);
+            if (controller != null) {
+                final DeploymentModulesService service = (DeploymentModulesService) controller.getService();
+                final ModuleIdentifier identifier = ModuleIdentifier.create(context.getCurrentAddressValue());
+                context.getResult().set(service.getMetrics().getInclusionCount(identifier));
+            }
         }
     }
 }
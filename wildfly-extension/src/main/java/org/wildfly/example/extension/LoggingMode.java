@@ -0,0 +1,43 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2015 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.example.extension;
+
+/**
+ * How the modules included on or excluded from a deployment are logged.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public enum LoggingMode {
+
+    /**
+     * Each included and excluded module is logged at {@code INFO}.
+     */
+    INFO,
+
+    /**
+     * Each included and excluded module is logged at {@code DEBUG}.
+     */
+    DEBUG,
+
+    /**
+     * A single line listing the included and excluded modules is logged at {@code INFO} for each deployment.
+     */
+    SUMMARY
+}
@@ -19,10 +19,16 @@
 
 package org.wildfly.example.extension;
 
+import org.jboss.as.controller.AttributeDefinition;
+import org.jboss.as.controller.OperationContext;
+import org.jboss.as.controller.OperationFailedException;
 import org.jboss.as.controller.PathElement;
 import org.jboss.as.controller.descriptions.ModelDescriptionConstants;
 import org.jboss.as.controller.descriptions.ResourceDescriptionResolver;
 import org.jboss.as.controller.descriptions.StandardResourceDescriptionResolver;
+import org.jboss.dmr.ModelNode;
+import org.wildfly.example.extension.deployment.DeploymentSelector;
+import org.wildfly.example.extension.logging.DeploymentModuleLogger;
 
 /**
  * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
@@ -49,4 +55,29 @@ public class Resources {
         }
         return new StandardResourceDescriptionResolver(prefix.toString(), RESOURCE_NAME, Resources.class.getClassLoader(), true, false);
     }
+
+    /**
+     * Resolves the deployment name selector attribute and validates the selector can be compiled.
+     *
+     * @param context   the operation context
+     * @param attribute the selector attribute
+     * @param model     the model to resolve the attribute from
+     *
+     * @return the selector or {@code null} if the attribute is not defined
+     *
+     * @throws OperationFailedException if the attribute could not be resolved or the selector is invalid
+     */
+    static String resolveDeploymentSelector(final OperationContext context, final AttributeDefinition attribute, final ModelNode model) throws OperationFailedException {
+        final ModelNode value = attribute.resolveModelAttribute(context, model);
+        if (!value.isDefined()) {
+            return null;
+        }
+        final String selector = value.asString();
+        try {
+            DeploymentSelector.compile(selector);
+        } catch (IllegalArgumentException e) {
+            throw DeploymentModuleLogger.LOGGER.invalidDeploymentSelector(e, selector);
+        }
+        return selector;
+    }
 }
@@ -19,6 +19,12 @@
 
 package org.wildfly.example.extension.deployment;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
 import org.jboss.as.server.deployment.Attachments;
 import org.jboss.as.server.deployment.DeploymentPhaseContext;
 import org.jboss.as.server.deployment.DeploymentUnit;
@@ -26,9 +32,9 @@ import org.jboss.as.server.deployment.DeploymentUnitProcessingException;
 import org.jboss.as.server.deployment.DeploymentUnitProcessor;
 import org.jboss.as.server.deployment.module.ModuleDependency;
 import org.jboss.as.server.deployment.module.ModuleSpecification;
-import org.jboss.modules.Module;
-import org.jboss.modules.ModuleLoader;
-import org.wildfly.example.extension.DeploymentDependency;
+import org.jboss.modules.ModuleIdentifier;
+import org.wildfly.example.extension.LoggingMode;
+import org.wildfly.example.extension.DeploymentModulesPlan;
 import org.wildfly.example.extension.DeploymentModulesService;
 import org.wildfly.example.extension.logging.DeploymentModuleLogger;
 
@@ -36,27 +42,96 @@ import org.wildfly.example.extension.logging.DeploymentModuleLogger;
  * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
  */
 public class DeploymentModuleProcessor implements DeploymentUnitProcessor {
+
+    private final ConcurrentMap<String, Pattern> selectors = new ConcurrentHashMap<>();
+
     @Override
     public void deploy(final DeploymentPhaseContext phaseContext) throws DeploymentUnitProcessingException {
+        final long start = System.nanoTime();
         final DeploymentUnit deploymentUnit = phaseContext.getDeploymentUnit();
         final ModuleSpecification moduleSpecification = deploymentUnit.getAttachment(Attachments.MODULE_SPECIFICATION);
-        final ModuleLoader moduleLoader = Module.getBootModuleLoader();
-
         final DeploymentModulesService service = (DeploymentModulesService) phaseContext.getServiceRegistry().getRequiredService(DeploymentModulesService.NAME).getService();
+        final DeploymentModulesPlan plan = service.getPlan();
 
-        // Add the logging modules
-        for (DeploymentDependency dep : service.getValue()) {
-            if (dep.isInclude()) {
-                DeploymentModuleLogger.LOGGER.includingModule(dep.getIdentifier());
-                moduleSpecification.addUserDependency(new ModuleDependency(moduleLoader, dep.getIdentifier(), dep.isOptional(), false, dep.isImport(), true));
-            } else {
-                DeploymentModuleLogger.LOGGER.excludingModule(dep.getIdentifier());
-                moduleSpecification.addExclusion(dep.getIdentifier());
+        List<ModuleDependency> dependencies = plan.getDependencies();
+        List<ModuleIdentifier> exclusions = plan.getExclusions();
+        if (!plan.getSelected().isEmpty()) {
+            final String name = deploymentUnit.getName();
+            for (DeploymentModulesPlan.Selected selected : plan.getSelected()) {
+                if (matches(selected.getDeployment(), name)) {
+                    if (selected.getDependency() != null) {
+                        if (dependencies == plan.getDependencies()) {
+                            dependencies = new ArrayList<>(dependencies);
+                        }
+                        dependencies.add(selected.getDependency());
+                    } else {
+                        if (exclusions == plan.getExclusions()) {
+                            exclusions = new ArrayList<>(exclusions);
+                        }
+                        exclusions.add(selected.getIdentifier());
+                    }
+                }
             }
         }
+
+        if (!dependencies.isEmpty() || !exclusions.isEmpty()) {
+            log(service.getLoggingMode(), deploymentUnit.getName(), dependencies, exclusions);
+            moduleSpecification.addUserDependencies(dependencies);
+            moduleSpecification.addExclusions(exclusions);
+        }
+        service.getMetrics().recordDeployment(System.nanoTime() - start, dependencies);
     }
 
     @Override
     public void undeploy(final DeploymentUnit context) {
     }
+
+    private static void log(final LoggingMode mode, final String deployment, final List<ModuleDependency> dependencies,
+                            final List<ModuleIdentifier> exclusions) {
+        final DeploymentModuleLogger logger = DeploymentModuleLogger.LOGGER;
+        switch (mode) {
+            case DEBUG:
+                if (logger.isDebugEnabled()) {
+                    for (ModuleDependency dependency : dependencies) {
+                        logger.includingModuleOnDeployment(dependency.getIdentifier(), deployment);
+                    }
+                    for (ModuleIdentifier exclusion : exclusions) {
+                        logger.excludingModuleFromDeployment(exclusion, deployment);
+                    }
+                }
+                break;
+            case SUMMARY:
+                if (logger.isInfoEnabled()) {
+                    final List<ModuleIdentifier> included = new ArrayList<>(dependencies.size());
+                    for (ModuleDependency dependency : dependencies) {
+                        included.add(dependency.getIdentifier());
+                    }
+                    logger.moduleSummary(deployment, included, exclusions);
+                }
+                break;
+            default:
+                if (logger.isInfoEnabled()) {
+                    for (ModuleDependency dependency : dependencies) {
+                        logger.includingModule(dependency.getIdentifier());
+                    }
+                    for (ModuleIdentifier exclusion : exclusions) {
+                        logger.excludingModule(exclusion);
+                    }
+                }
+                break;
+        }
+    }
+
+    private boolean matches(final String selector, final String name) {
+        Pattern pattern = selectors.get(selector);
+        if (pattern == null) {
+            // Selectors are validated when the resource is added so compiling should not fail here
+            pattern = DeploymentSelector.compile(selector);
+            final Pattern existing = selectors.putIfAbsent(selector, pattern);
+            if (existing != null) {
+                pattern = existing;
+            }
+        }
+        return pattern.matcher(name).matches();
+    }
 }
@@ -0,0 +1,101 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2015 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.example.extension.deployment;
+
+import java.util.regex.Pattern;
+
+/**
+ * Compiles the deployment name selectors of the includes and excludes.
+ * <p>
+ * A selector prefixed with {@code regex:} is a regular expression. Otherwise the selector is a glob, optionally
+ * prefixed with {@code glob:}, where {@code *} matches any number of characters, {@code ?} matches a single
+ * character and {@code {war,ear}} matches any of the comma separated alternatives. The selector must match the whole
+ * name of the deployment or subdeployment.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public final class DeploymentSelector {
+
+    private static final String GLOB_PREFIX = "glob:";
+    private static final String REGEX_PREFIX = "regex:";
+
+    private DeploymentSelector() {
+    }
+
+    /**
+     * Compiles the selector into a pattern.
+     *
+     * @param selector the selector to compile
+     *
+     * @return the pattern for the selector
+     *
+     * @throws IllegalArgumentException if the selector is not a valid glob or regular expression
+     */
+    public static Pattern compile(final String selector) {
+        if (selector.startsWith(REGEX_PREFIX)) {
+            return Pattern.compile(selector.substring(REGEX_PREFIX.length()));
+        }
+        final String glob = selector.startsWith(GLOB_PREFIX) ? selector.substring(GLOB_PREFIX.length()) : selector;
+        return Pattern.compile(toRegex(glob));
+    }
+
+    private static String toRegex(final String glob) {
+        final StringBuilder result = new StringBuilder(glob.length() + 16);
+        boolean inGroup = false;
+        for (int i = 0; i < glob.length(); i++) {
+            final char c = glob.charAt(i);
+            switch (c) {
+                case '*':
+                    result.append(".*");
+                    break;
+                case '?':
+                    result.append('.');
+                    break;
+                case '{':
+                    if (inGroup) {
+                        throw new IllegalArgumentException("Nested groups are not allowed in the glob " + glob);
+                    }
+                    inGroup = true;
+                    result.append("(?:");
+                    break;
+                case '}':
+                    if (!inGroup) {
+                        throw new IllegalArgumentException("Unmatched '}' in the glob " + glob);
+                    }
+                    inGroup = false;
+                    result.append(')');
+                    break;
+                case ',':
+                    result.append(inGroup ? "|" : ",");
+                    break;
+                default:
+                    if ("\\.[]()^$+|".indexOf(c) >= 0) {
+                        result.append('\\');
+                    }
+                    result.append(c);
+            }
+        }
+        if (inGroup) {
+            throw new IllegalArgumentException("Unmatched '{' in the glob " + glob);
+        }
+        return result.toString();
+    }
+}
@@ -19,12 +19,18 @@
 
 package org.wildfly.example.extension.logging;
 
+import java.util.Collection;
+import java.util.List;
+
+import org.jboss.as.controller.OperationFailedException;
 import org.jboss.logging.BasicLogger;
 import org.jboss.logging.Logger;
+import org.jboss.logging.annotations.Cause;
 import org.jboss.logging.annotations.LogMessage;
 import org.jboss.logging.annotations.Message;
 import org.jboss.logging.annotations.MessageLogger;
 import org.jboss.modules.ModuleIdentifier;
+import org.jboss.msc.service.StartException;
 
 /**
  * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
@@ -41,4 +47,39 @@ public interface DeploymentModuleLogger extends BasicLogger {
     @LogMessage(level = Logger.Level.INFO)
     @Message(id = 2, value = "Excluding module %s")
     void excludingModule(ModuleIdentifier moduleId);
+
+    @Message(id = 3, value = "Invalid deployment selector '%s'")
+    OperationFailedException invalidDeploymentSelector(@Cause Throwable cause, String selector);
+
+    @LogMessage(level = Logger.Level.INFO)
+    @Message(id = 4, value = "Redeploying %s to apply the deployment module changes")
+    void redeploying(String deployment);
+
+    @Message(id = 5, value = "Failed to redeploy %s")
+    OperationFailedException redeployFailed(@Cause Throwable cause, Collection<String> deployments);
+
+    @Message(id = 6, value = "Interrupted while redeploying the affected deployments")
+    OperationFailedException redeployInterrupted(@Cause Throwable cause);
+
+    @LogMessage(level = Logger.Level.WARN)
+    @Message(id = 7, value = "Failed to redeploy the affected deployments while rolling back the deployment module changes")
+    void rollbackRedeployFailed(@Cause Throwable cause);
+
+    @LogMessage(level = Logger.Level.INFO)
+    @Message(id = 8, value = "Deployment %s includes modules %s and excludes modules %s")
+    void moduleSummary(String deployment, List<ModuleIdentifier> included, List<ModuleIdentifier> excluded);
+
+    @LogMessage(level = Logger.Level.DEBUG)
+    @Message(id = 9, value = "Including module %s on deployment %s")
+    void includingModuleOnDeployment(ModuleIdentifier moduleId, String deployment);
+
+    @LogMessage(level = Logger.Level.DEBUG)
+    @Message(id = 10, value = "Excluding module %s from deployment %s")
+    void excludingModuleFromDeployment(ModuleIdentifier moduleId, String deployment);
+
+    @Message(id = 11, value = "Failed to preload module %s")
+    StartException preloadFailed(@Cause Throwable cause, ModuleIdentifier moduleId);
+
+    @Message(id = 12, value = "Failed to preload module %s")
+    OperationFailedException preloadIncludeFailed(@Cause Throwable cause, ModuleIdentifier moduleId);
 }